@@ -0,0 +1,72 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * The VectorQuadBoxTest class is the SIMD {@link QuadBoxTest} on the incubating Vector API -
+ * every plane of the four boxes is loaded into one 256-bit vector and all the lanes are tested at once.
+ * The comparisons and blends mirror the scalar test exactly (a NaN slab distance never moves the interval),
+ * so both implementations return the same distances.
+ * <p>
+ * This class must only be loaded through {@link QuadBoxTest#select()}, which checks that the module is present.
+ */
+final class VectorQuadBoxTest implements QuadBoxTest {
+
+    /**
+     * Four doubles per vector.
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_256;
+
+    /**
+     * Constructs the box test.
+     *
+     * @throws UnsupportedOperationException if the hardware has no 256-bit vectors,
+     *                                       so the Vector API would only emulate them
+     */
+    VectorQuadBoxTest() {
+        if (DoubleVector.SPECIES_PREFERRED.length() < WIDTH)
+            throw new UnsupportedOperationException("No 256-bit vectors on this hardware");
+    }
+
+    @Override
+    public void entryDistances(double[] boxes, int offset, Ray ray, double tMin, double tMax, double[] entries) {
+        Point p0 = ray.getP0();
+        int nearX = offset + ray.getSignX() * 3 * WIDTH, farX = offset + (1 - ray.getSignX()) * 3 * WIDTH;
+        int nearY = offset + (1 + ray.getSignY() * 3) * WIDTH, farY = offset + (4 - ray.getSignY() * 3) * WIDTH;
+        int nearZ = offset + (2 + ray.getSignZ() * 3) * WIDTH, farZ = offset + (5 - ray.getSignZ() * 3) * WIDTH;
+
+        DoubleVector near = DoubleVector.broadcast(SPECIES, tMin);
+        DoubleVector far = DoubleVector.broadcast(SPECIES, tMax);
+        near = slab(near, boxes, nearX, p0.getX(), ray.getInvDirX(), VectorOperators.GT);
+        far = slab(far, boxes, farX, p0.getX(), ray.getInvDirX(), VectorOperators.LT);
+        near = slab(near, boxes, nearY, p0.getY(), ray.getInvDirY(), VectorOperators.GT);
+        far = slab(far, boxes, farY, p0.getY(), ray.getInvDirY(), VectorOperators.LT);
+        near = slab(near, boxes, nearZ, p0.getZ(), ray.getInvDirZ(), VectorOperators.GT);
+        far = slab(far, boxes, farZ, p0.getZ(), ray.getInvDirZ(), VectorOperators.LT);
+        DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY)
+                .blend(near, near.compare(VectorOperators.LE, far))
+                .intoArray(entries, 0);
+    }
+
+    /**
+     * Computes the distances of the ray to one plane of the four boxes and moves a bound of the interval to them
+     * in the lanes where they are tighter.
+     *
+     * @param bound   the current bounds of the four lanes
+     * @param boxes   the boxes array
+     * @param index   the index of the four coordinates of the plane
+     * @param origin  the coordinate of the ray's head on the plane's axis
+     * @param invDir  the reciprocal of the ray's direction on the plane's axis
+     * @param tighter GT for the near bound, LT for the far bound
+     * @return the updated bounds
+     */
+    private static DoubleVector slab(DoubleVector bound, double[] boxes, int index, double origin, double invDir,
+                                     VectorOperators.Comparison tighter) {
+        DoubleVector t = DoubleVector.fromArray(SPECIES, boxes, index).sub(origin).mul(invDir);
+        return bound.blend(t, t.compare(tighter, bound));
+    }
+}
@@ -2,7 +2,6 @@ package geometries;
 
 import primitives.Point;
 import primitives.Ray;
-import primitives.Vector;
 
 /**
  * Represents an Axis-Aligned Bounding Box (AABB).
@@ -10,8 +9,10 @@ import primitives.Vector;
  * It is useful for efficient intersection tests and spatial partitioning.
  */
 public class AABB {
-    private Point min;
-    private Point max;
+    /**
+     * The bounds of the box: minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] bounds = new double[6];
 
     /**
      * Constructs an AABB with the given minimum and maximum points.
@@ -20,8 +21,35 @@ public class AABB {
      * @param max The maximum point of the bounding box.
      */
     public AABB(Point min, Point max) {
-        this.min = min;
-        this.max = max;
+        bounds[0] = min.getX();
+        bounds[1] = min.getY();
+        bounds[2] = min.getZ();
+        bounds[3] = max.getX();
+        bounds[4] = max.getY();
+        bounds[5] = max.getZ();
+    }
+
+    /**
+     * Creates an AABB that covers the whole space, for unbounded geometries.
+     *
+     * @return a new infinite AABB.
+     */
+    public static AABB infinite() {
+        return new AABB(
+                new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY),
+                new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY)
+        );
+    }
+
+    /**
+     * Checks if this AABB is bounded - all its bounds are finite numbers.
+     *
+     * @return true if the box is bounded, false if it is infinite or undefined in any axis.
+     */
+    public boolean isFinite() {
+        for (double bound : bounds)
+            if (!Double.isFinite(bound)) return false;
+        return true;
     }
 
     /**
@@ -31,48 +59,73 @@ public class AABB {
      * @return true if the ray intersects with this AABB, false otherwise.
      */
     public boolean intersects(Ray ray) {
-        Point p0 = ray.getP0();
-        Vector dir = ray.getDir();
-        double tmin = (min.getX() - p0.getX()) / dir.getX();
-        double tmax = (max.getX() - p0.getX()) / dir.getX();
-
-        if (tmin > tmax) {
-            double temp = tmin;
-            tmin = tmax;
-            tmax = temp;
-        }
-
-        double tymin = (min.getY() - p0.getY()) / dir.getY();
-        double tymax = (max.getY() - p0.getY()) / dir.getY();
-
-        if (tymin > tymax) {
-            double temp = tymin;
-            tymin = tymax;
-            tymax = temp;
-        }
-
-        if ((tmin > tymax) || (tymin > tmax))
-            return false;
-
-        if (tymin > tmin)
-            tmin = tymin;
-
-        if (tymax < tmax)
-            tmax = tymax;
+        return intersects(ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
 
-        double tzmin = (min.getZ() - p0.getZ()) / dir.getZ();
-        double tzmax = (max.getZ() - p0.getZ()) / dir.getZ();
+    /**
+     * Checks if a given ray intersects with this AABB at a distance within the interval [tMin, tMax].
+     *
+     * @param ray  The ray to test for intersection with this AABB.
+     * @param tMin The lower bound of the distance along the ray.
+     * @param tMax The upper bound of the distance along the ray.
+     * @return true if the ray intersects with this AABB within the interval, false otherwise.
+     */
+    public boolean intersects(Ray ray, double tMin, double tMax) {
+        return entryDistance(bounds, 0, ray, tMin, tMax) != Double.POSITIVE_INFINITY;
+    }
 
-        if (tzmin > tzmax) {
-            double temp = tzmin;
-            tzmin = tzmax;
-            tzmax = temp;
-        }
+    /**
+     * Calculates the distance along a ray at which it enters this AABB, within the interval [tMin, tMax].
+     *
+     * @param ray  The ray to test for intersection with this AABB.
+     * @param tMin The lower bound of the distance along the ray.
+     * @param tMax The upper bound of the distance along the ray.
+     * @return The entry distance (tMin if the ray starts inside the box),
+     * or positive infinity if the ray misses the box within the interval.
+     */
+    public double entryDistance(Ray ray, double tMin, double tMax) {
+        return entryDistance(bounds, 0, ray, tMin, tMax);
+    }
 
-        if ((tmin > tzmax) || (tzmin > tmax))
-            return false;
+    /**
+     * Slab test of a ray against a box stored in a bounds array.
+     * The ray's cached reciprocal direction replaces the divisions, and its sign bits select the near
+     * and far planes of every slab without comparisons. A ray parallel to a slab gets an infinite
+     * distance to it. If its head also lies exactly on the slab's plane, the distance is undefined (NaN),
+     * and the comparisons, which are false for NaN, leave the interval unchanged instead of culling the box.
+     *
+     * @param bounds The bounds array, 6 values per box: minX, minY, minZ, maxX, maxY, maxZ.
+     * @param offset The offset of the box in the bounds array.
+     * @param ray    The ray to test.
+     * @param tMin   The lower bound of the distance along the ray.
+     * @param tMax   The upper bound of the distance along the ray.
+     * @return The entry distance, or positive infinity if the ray misses the box within the interval.
+     */
+    static double entryDistance(double[] bounds, int offset, Ray ray, double tMin, double tMax) {
+        Point p0 = ray.getP0();
 
-        return true;
+        double invDir = ray.getInvDirX();
+        int near = ray.getSignX() * 3;
+        double t0 = (bounds[offset + near] - p0.getX()) * invDir;
+        double t1 = (bounds[offset + 3 - near] - p0.getX()) * invDir;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+
+        invDir = ray.getInvDirY();
+        near = ray.getSignY() * 3;
+        t0 = (bounds[offset + 1 + near] - p0.getY()) * invDir;
+        t1 = (bounds[offset + 4 - near] - p0.getY()) * invDir;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+
+        invDir = ray.getInvDirZ();
+        near = ray.getSignZ() * 3;
+        t0 = (bounds[offset + 2 + near] - p0.getZ()) * invDir;
+        t1 = (bounds[offset + 5 - near] - p0.getZ()) * invDir;
+        if (t0 > tMin) tMin = t0;
+        if (t1 < tMax) tMax = t1;
+
+        return tMin <= tMax ? tMin : Double.POSITIVE_INFINITY;
     }
 
     /**
@@ -82,16 +135,20 @@ public class AABB {
      * @param other The other AABB to include.
      */
     public void expandToInclude(AABB other) {
-        this.min = new Point(
-                Math.min(this.min.getX(), other.min.getX()),
-                Math.min(this.min.getY(), other.min.getY()),
-                Math.min(this.min.getZ(), other.min.getZ())
-        );
-        this.max = new Point(
-                Math.max(this.max.getX(), other.max.getX()),
-                Math.max(this.max.getY(), other.max.getY()),
-                Math.max(this.max.getZ(), other.max.getZ())
-        );
+        for (int axis = 0; axis < 3; ++axis) {
+            bounds[axis] = Math.min(bounds[axis], other.bounds[axis]);
+            bounds[axis + 3] = Math.max(bounds[axis + 3], other.bounds[axis + 3]);
+        }
+    }
+
+    /**
+     * Copies the bounds of this AABB into a bounds array.
+     *
+     * @param target The bounds array, 6 values per box.
+     * @param offset The offset of the box in the bounds array.
+     */
+    void copyTo(double[] target, int offset) {
+        System.arraycopy(bounds, 0, target, offset, 6);
     }
 
     /**
@@ -100,7 +157,7 @@ public class AABB {
      * @return The minimum point of this AABB.
      */
     public Point getMin() {
-        return min;
+        return new Point(bounds[0], bounds[1], bounds[2]);
     }
 
     /**
@@ -109,6 +166,6 @@ public class AABB {
      * @return The maximum point of this AABB.
      */
     public Point getMax() {
-        return max;
+        return new Point(bounds[3], bounds[4], bounds[5]);
     }
-}
\ No newline at end of file
+}
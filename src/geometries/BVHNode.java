@@ -4,6 +4,7 @@ import primitives.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * The BVHNode class represents a node in a Bounding Volume Hierarchy (BVH) used for efficient
@@ -14,35 +15,112 @@ public class BVHNode extends Intersectable {
     private Intersectable left;
     private Intersectable right;
     private AABB boundingBox;
+    /**
+     * The bounding boxes of the children, kept to order the traversal without recomputing them.
+     */
+    private AABB leftBox;
+    private AABB rightBox;
 
     /**
      * Constructs a BVHNode from a list of intersectable objects.
-     * The objects are recursively split into two groups to form the hierarchy.
+     * The objects are recursively split into two groups to form the hierarchy, choosing the split axis
+     * and position by the binned Surface Area Heuristic over the bounding boxes of the objects.
+     * The subtrees of large groups are built in parallel, with the same result as a sequential build.
      *
      * @param objects the list of intersectable objects to be included in this node.
      */
     public BVHNode(List<Intersectable> objects) {
-        if (objects.size() == 1) {
-            left = objects.get(0);
+        this(objects, true);
+    }
+
+    /**
+     * Constructs a BVHNode from a list of intersectable objects, in parallel or sequentially.
+     *
+     * @param objects  the list of intersectable objects to be included in this node.
+     * @param parallel whether the subtrees of large groups are built in parallel.
+     */
+    BVHNode(List<Intersectable> objects, boolean parallel) {
+        this(objects.toArray(new Intersectable[0]), parallel);
+    }
+
+    /**
+     * Constructs the root BVHNode over an array of intersectable objects.
+     *
+     * @param objects  the intersectable objects to be included in this node.
+     * @param parallel whether the subtrees of large groups are built in parallel.
+     */
+    private BVHNode(Intersectable[] objects, boolean parallel) {
+        this(objects, new BinnedSAH(BinnedSAH.boundsOf(objects), parallel), 0, objects.length);
+    }
+
+    /**
+     * Constructs a BVHNode over a range of the objects, in the order kept by the SAH splitter.
+     *
+     * @param objects the intersectable objects of the whole hierarchy
+     * @param sah     the SAH splitter holding the current order of the objects
+     * @param begin   the first index of the range (inclusive)
+     * @param end     the last index of the range (exclusive)
+     */
+    private BVHNode(Intersectable[] objects, BinnedSAH sah, int begin, int end) {
+        if (end - begin == 1) {
+            left = objects[sah.order[begin]];
             right = null;
-        } else if (objects.size() == 2) {
-            left = objects.get(0);
-            right = objects.get(1);
+        } else if (end - begin == 2) {
+            left = objects[sah.order[begin]];
+            right = objects[sah.order[begin + 1]];
         } else {
-            int mid = objects.size() / 2;
-            left = new BVHNode(objects.subList(0, mid));
-            right = new BVHNode(objects.subList(mid, objects.size()));
+            int mid = sah.split(begin, end);
+            if (sah.parallel && end - begin >= BinnedSAH.FORK_THRESHOLD) {
+                // the splits of the two ranges touch disjoint parts of the order, so they can run concurrently
+                ForkJoinTask<Intersectable> leftTask = ForkJoinTask.adapt(() -> child(objects, sah, begin, mid)).fork();
+                right = child(objects, sah, mid, end);
+                left = leftTask.join();
+            } else {
+                left = child(objects, sah, begin, mid);
+                right = child(objects, sah, mid, end);
+            }
         }
+        computeBoxes();
+    }
+
+    /**
+     * Constructs a BVHNode over two given children, for hierarchies built by other builders (see {@link LinearBVH}).
+     *
+     * @param left  the first child - a BVHNode or a geometric object.
+     * @param right the second child, or null for a node holding a single object.
+     */
+    BVHNode(Intersectable left, Intersectable right) {
+        this.left = left;
+        this.right = right;
+        computeBoxes();
+    }
 
-        boundingBox = new AABB(
-                left.getBoundingBox().getMin(),
-                left.getBoundingBox().getMax()
-        );
+    /**
+     * Calculates the bounding box of this node and caches the boxes of its children.
+     */
+    private void computeBoxes() {
+        leftBox = left.getBoundingBox();
+        boundingBox = new AABB(leftBox.getMin(), leftBox.getMax());
         if (right != null) {
-            boundingBox.expandToInclude(right.getBoundingBox());
+            rightBox = right.getBoundingBox();
+            boundingBox.expandToInclude(rightBox);
         }
     }
 
+    /**
+     * Creates the child of a node over a range of the objects.
+     * A single object is used directly instead of being wrapped by another node.
+     *
+     * @param objects the intersectable objects of the whole hierarchy
+     * @param sah     the SAH splitter holding the current order of the objects
+     * @param begin   the first index of the range (inclusive)
+     * @param end     the last index of the range (exclusive)
+     * @return the child intersectable
+     */
+    private static Intersectable child(Intersectable[] objects, BinnedSAH sah, int begin, int end) {
+        return end - begin == 1 ? objects[sah.order[begin]] : new BVHNode(objects, sah, begin, end);
+    }
+
     /**
      * Finds the intersections of a given ray with the geometric objects in this BVHNode.
      * If the ray does not intersect the bounding box of this node, it returns null.
@@ -68,6 +146,129 @@ public class BVHNode extends Intersectable {
         return allIntersections;
     }
 
+    /**
+     * Finds the closest intersection of a given ray with the geometric objects in this BVHNode.
+     * The traversal is ordered front to back, see {@link #findClosestInChildren(Ray, double, double)}.
+     *
+     * @param ray  the ray to intersect with the geometric objects.
+     * @param tMin the lower bound of the distance.
+     * @param tMax the upper bound of the distance.
+     * @return the closest intersection in the interval, or null if there is none.
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        if (!boundingBox.intersects(ray, tMin, tMax)) {
+            return null;
+        }
+        return findClosestInChildren(ray, tMin, tMax);
+    }
+
+    /**
+     * Finds the closest intersection in the children of this node, whose own box was already hit by the ray.
+     * The child whose box the ray enters first is visited first. The distance of an intersection found there
+     * bounds the search in the other child, which is skipped when the ray enters its box beyond that intersection.
+     *
+     * @param ray  the ray to intersect with the geometric objects.
+     * @param tMin the lower bound of the distance.
+     * @param tMax the upper bound of the distance.
+     * @return the closest intersection in the interval, or null if there is none.
+     */
+    private GeoPoint findClosestInChildren(Ray ray, double tMin, double tMax) {
+        Intersectable near = left;
+        Intersectable far = right;
+        double nearEntry = leftBox.entryDistance(ray, tMin, tMax);
+        double farEntry = right == null ? Double.POSITIVE_INFINITY : rightBox.entryDistance(ray, tMin, tMax);
+        if (farEntry < nearEntry) {
+            near = right;
+            far = left;
+            double entry = nearEntry;
+            nearEntry = farEntry;
+            farEntry = entry;
+        }
+
+        GeoPoint closest = nearEntry == Double.POSITIVE_INFINITY ? null : findClosestInChild(near, ray, tMin, tMax);
+        if (closest != null) tMax = ray.getP0().distance(closest.point);
+        if (farEntry >= tMax) return closest;
+
+        GeoPoint farClosest = findClosestInChild(far, ray, tMin, tMax);
+        return farClosest != null ? farClosest : closest;
+    }
+
+    /**
+     * Finds the closest intersection in a child whose bounding box was already hit by the ray.
+     *
+     * @param child the child - a BVHNode or a geometric object
+     * @param ray   the ray to intersect with the geometric objects.
+     * @param tMin  the lower bound of the distance.
+     * @param tMax  the upper bound of the distance.
+     * @return the closest intersection in the interval, or null if there is none.
+     */
+    private static GeoPoint findClosestInChild(Intersectable child, Ray ray, double tMin, double tMax) {
+        return child instanceof BVHNode node
+                ? node.findClosestInChildren(ray, tMin, tMax)
+                : child.findClosestGeoIntersection(ray, tMin, tMax);
+    }
+
+    /**
+     * Occlusion query over the geometric objects in this BVHNode.
+     * The right child is not visited once the left child has made the ray fully opaque.
+     *
+     * @param ray         the ray to intersect with the geometric objects.
+     * @param maxDistance the distance beyond which intersections are ignored.
+     * @param ktr         the transparency accumulated so far.
+     * @return the accumulated transparency.
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        if (!boundingBox.intersects(ray, 0, maxDistance)) {
+            return ktr;
+        }
+
+        ktr = left.findTransparency(ray, maxDistance, ktr);
+        if (right == null || ktr.equals(Double3.ZERO)) return ktr;
+        return right.findTransparency(ray, maxDistance, ktr);
+    }
+
+    /**
+     * Gets the first child of this node.
+     *
+     * @return the left child
+     */
+    Intersectable getLeft() {
+        return left;
+    }
+
+    /**
+     * Gets the second child of this node.
+     *
+     * @return the right child, or null if this node holds a single object
+     */
+    Intersectable getRight() {
+        return right;
+    }
+
+    /**
+     * Gets the depth of the hierarchy under this node.
+     *
+     * @return the number of nodes on the longest path from this node to a leaf
+     */
+    public int getDepth() {
+        return 1 + Math.max(
+                left instanceof BVHNode node ? node.getDepth() : 0,
+                right instanceof BVHNode node ? node.getDepth() : 0);
+    }
+
+    /**
+     * Gets the number of nodes in the hierarchy under this node.
+     *
+     * @return the number of nodes, including this one
+     */
+    public int getNodeCount() {
+        return 1
+                + (left instanceof BVHNode node ? node.getNodeCount() : 0)
+                + (right instanceof BVHNode node ? node.getNodeCount() : 0);
+    }
+
     /**
      * Gets the bounding box of this BVHNode.
      *
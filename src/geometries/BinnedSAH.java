@@ -0,0 +1,358 @@
+package geometries;
+
+import primitives.Point;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Binned Surface Area Heuristic (SAH) splitter used to build bounding volume hierarchies.
+ * The primitives are described only by their bounding boxes, stored as flat arrays, so the same
+ * splitter serves any hierarchy. Each split sorts the centroids of a range of primitives into a
+ * fixed number of bins along every axis, and picks the bin boundary that minimizes the estimated
+ * traversal cost (surface area of each side times the number of primitives on that side).
+ * <p>
+ * Splits of disjoint ranges may run concurrently, so the builders fork the subtrees of large ranges
+ * (see {@link #FORK_THRESHOLD}), and the binning of a very large range is itself split into chunks that
+ * run in parallel. Binning only takes minima, maxima and counts, which do not depend on the order
+ * in which the chunks are merged, so a parallel build produces exactly the same hierarchy as a sequential one.
+ */
+final class BinnedSAH {
+
+    /**
+     * Number of bins used to evaluate candidate split positions along an axis.
+     */
+    static final int BIN_COUNT = 12;
+
+    /**
+     * The minimal number of primitives in a range for a builder to build its two subtrees in parallel.
+     */
+    static final int FORK_THRESHOLD = 4096;
+
+    /**
+     * The minimal number of primitives in a range for its binning to run in parallel chunks.
+     */
+    static final int PARALLEL_BINNING_THRESHOLD = 1 << 16;
+
+    /**
+     * The number of primitives in a chunk of a parallel binning.
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * Whether the hierarchy is built in parallel - subtrees by the builders and large binnings by the splitter.
+     */
+    final boolean parallel;
+
+    /**
+     * Bounds of the primitives - 6 values per primitive: minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] bounds;
+
+    /**
+     * Centroids of the primitive bounds - 3 values per primitive.
+     */
+    private final double[] centroids;
+
+    /**
+     * Permutation of the primitive indices, reordered in place by {@link #split(int, int)}.
+     */
+    final int[] order;
+
+    /**
+     * Constructs a splitter over the given primitive bounds.
+     *
+     * @param bounds   the primitive bounds, 6 values per primitive (min corner followed by max corner)
+     * @param parallel whether the hierarchy is built in parallel
+     */
+    BinnedSAH(double[] bounds, boolean parallel) {
+        this.bounds = bounds;
+        this.parallel = parallel;
+        int count = bounds.length / 6;
+        centroids = new double[count * 3];
+        order = new int[count];
+        for (int i = 0; i < count; ++i) {
+            order[i] = i;
+            for (int axis = 0; axis < 3; ++axis)
+                centroids[i * 3 + axis] = (bounds[i * 6 + axis] + bounds[i * 6 + 3 + axis]) / 2;
+        }
+    }
+
+    /**
+     * Builds the flat bounds array of a set of intersectable objects.
+     *
+     * @param objects the objects
+     * @return the bounds array, 6 values per object
+     */
+    static double[] boundsOf(Intersectable[] objects) {
+        double[] bounds = new double[objects.length * 6];
+        for (int i = 0; i < objects.length; ++i)
+            objects[i].getBoundingBox().copyTo(bounds, i * 6);
+        return bounds;
+    }
+
+    /**
+     * Splits the range [begin, end) of {@link #order} into two non-empty groups.
+     * The range is reordered so the first group precedes the second one.
+     * When no split with a finite cost exists (all centroids coincide, or the boxes are infinite),
+     * the range is split at its middle, keeping the current order.
+     *
+     * @param begin the first index of the range (inclusive)
+     * @param end   the last index of the range (exclusive), at least begin + 2
+     * @return the index where the second group starts
+     */
+    int split(int begin, int end) {
+        double[] cMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] cMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        int chunks = chunkCount(begin, end);
+        double[][] centroidBounds = new double[chunks][];
+        forEachChunk(chunks, c -> centroidBounds[c] = centroidBounds(chunkStart(begin, end, chunks, c),
+                chunkStart(begin, end, chunks, c + 1)));
+        for (double[] part : centroidBounds) {
+            for (int axis = 0; axis < 3; ++axis) {
+                cMin[axis] = Math.min(cMin[axis], part[axis]);
+                cMax[axis] = Math.max(cMax[axis], part[axis + 3]);
+            }
+        }
+
+        double[] extents = new double[3];
+        for (int axis = 0; axis < 3; ++axis) {
+            double extent = cMax[axis] - cMin[axis];
+            extents[axis] = extent > 0 && Double.isFinite(extent) ? extent : 0;
+        }
+
+        // sort the primitive boxes into the bins of all the axes
+        int[] counts = new int[3 * BIN_COUNT];
+        double[] binBounds = new double[3 * BIN_COUNT * 6];
+        if (chunks == 1) {
+            bin(begin, end, cMin, extents, counts, binBounds);
+        } else {
+            int[][] partCounts = new int[chunks][];
+            double[][] partBounds = new double[chunks][];
+            forEachChunk(chunks, c -> {
+                partCounts[c] = new int[3 * BIN_COUNT];
+                partBounds[c] = new double[3 * BIN_COUNT * 6];
+                bin(chunkStart(begin, end, chunks, c), chunkStart(begin, end, chunks, c + 1), cMin, extents,
+                        partCounts[c], partBounds[c]);
+            });
+            for (int b = 0; b < 3 * BIN_COUNT; ++b) resetBox(binBounds, b * 6);
+            for (int c = 0; c < chunks; ++c) {
+                for (int b = 0; b < 3 * BIN_COUNT; ++b) {
+                    counts[b] += partCounts[c][b];
+                    includeBox(binBounds, b * 6, partBounds[c], b * 6);
+                }
+            }
+        }
+
+        int bestAxis = -1;
+        int bestBin = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+
+        double[] rightAreas = new double[BIN_COUNT];
+        int[] rightCounts = new int[BIN_COUNT];
+        double[] box = new double[6];
+
+        for (int axis = 0; axis < 3; ++axis) {
+            if (extents[axis] == 0) continue;
+            int first = axis * BIN_COUNT;
+
+            // sweep from the right to collect the area and count of every right side
+            resetBox(box, 0);
+            int count = 0;
+            for (int b = BIN_COUNT - 1; b > 0; --b) {
+                includeBox(box, 0, binBounds, (first + b) * 6);
+                count += counts[first + b];
+                rightAreas[b] = halfArea(box, 0);
+                rightCounts[b] = count;
+            }
+
+            // sweep from the left and evaluate the cost of splitting after every bin
+            resetBox(box, 0);
+            count = 0;
+            for (int b = 0; b < BIN_COUNT - 1; ++b) {
+                includeBox(box, 0, binBounds, (first + b) * 6);
+                count += counts[first + b];
+                if (count == 0 || rightCounts[b + 1] == 0) continue;
+                double cost = halfArea(box, 0) * count + rightAreas[b + 1] * rightCounts[b + 1];
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestBin = b;
+                }
+            }
+        }
+
+        if (bestAxis < 0) return (begin + end) / 2;
+
+        // partition the range: primitives in bins up to bestBin go first
+        double extent = extents[bestAxis];
+        int i = begin;
+        int j = end - 1;
+        while (i <= j) {
+            if (binOf(centroids[order[i] * 3 + bestAxis], cMin[bestAxis], extent) <= bestBin) {
+                ++i;
+            } else {
+                int temp = order[i];
+                order[i] = order[j];
+                order[j--] = temp;
+            }
+        }
+        return i == begin || i == end ? (begin + end) / 2 : i;
+    }
+
+    /**
+     * Calculates the number of chunks for the binning of a range - a single chunk unless the range is
+     * large enough for a parallel binning.
+     *
+     * @param begin the first index of the range (inclusive)
+     * @param end   the last index of the range (exclusive)
+     * @return the number of chunks
+     */
+    private int chunkCount(int begin, int end) {
+        return parallel && end - begin >= PARALLEL_BINNING_THRESHOLD ? (end - begin + CHUNK_SIZE - 1) / CHUNK_SIZE : 1;
+    }
+
+    /**
+     * Calculates the first index of a chunk of a range.
+     *
+     * @param begin  the first index of the range (inclusive)
+     * @param end    the last index of the range (exclusive)
+     * @param chunks the number of chunks
+     * @param chunk  the chunk, or the number of chunks for the end of the range
+     * @return the first index of the chunk
+     */
+    static int chunkStart(int begin, int end, int chunks, int chunk) {
+        return begin + (int) ((long) (end - begin) * chunk / chunks);
+    }
+
+    /**
+     * Runs an action for every chunk - in parallel if there is more than one chunk.
+     * Inside a fork/join task the chunks run in the pool of the task, otherwise in the common pool.
+     *
+     * @param chunks the number of chunks
+     * @param action the action, given the chunk index
+     */
+    static void forEachChunk(int chunks, IntConsumer action) {
+        if (chunks == 1) action.accept(0);
+        else IntStream.range(0, chunks).parallel().forEach(action);
+    }
+
+    /**
+     * Calculates the bounds of the finite centroid coordinates of a range.
+     *
+     * @param begin the first index of the range (inclusive)
+     * @param end   the last index of the range (exclusive)
+     * @return the centroid bounds, 6 values
+     */
+    private double[] centroidBounds(int begin, int end) {
+        double[] result = new double[6];
+        resetBox(result, 0);
+        for (int i = begin; i < end; ++i) {
+            int c = order[i] * 3;
+            for (int axis = 0; axis < 3; ++axis) {
+                double value = centroids[c + axis];
+                if (Double.isFinite(value)) {
+                    result[axis] = Math.min(result[axis], value);
+                    result[axis + 3] = Math.max(result[axis + 3], value);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sorts the primitive boxes of a range into the bins of every axis with a positive centroid extent.
+     *
+     * @param begin     the first index of the range (inclusive)
+     * @param end       the last index of the range (exclusive)
+     * @param cMin      the minimal centroid coordinates of the whole range being split
+     * @param extents   the centroid extents of the whole range being split, 0 for an axis that is not binned
+     * @param counts    the primitive counts of the bins, BIN_COUNT per axis
+     * @param binBounds the bounds of the bins, reset to empty boxes, BIN_COUNT boxes per axis
+     */
+    private void bin(int begin, int end, double[] cMin, double[] extents, int[] counts, double[] binBounds) {
+        for (int b = 0; b < 3 * BIN_COUNT; ++b) resetBox(binBounds, b * 6);
+        for (int i = begin; i < end; ++i) {
+            int p = order[i];
+            for (int axis = 0; axis < 3; ++axis) {
+                if (extents[axis] == 0) continue;
+                int b = axis * BIN_COUNT + binOf(centroids[p * 3 + axis], cMin[axis], extents[axis]);
+                ++counts[b];
+                includeBox(binBounds, b * 6, bounds, p * 6);
+            }
+        }
+    }
+
+    /**
+     * Calculates the bin of a centroid coordinate.
+     *
+     * @param value  the centroid coordinate
+     * @param min    the minimal centroid coordinate of the range
+     * @param extent the extent of the centroid coordinates of the range
+     * @return the bin index, clamped into [0, BIN_COUNT)
+     */
+    private static int binOf(double value, double min, double extent) {
+        int b = (int) ((value - min) / extent * BIN_COUNT);
+        return b < 0 ? 0 : Math.min(b, BIN_COUNT - 1);
+    }
+
+    /**
+     * Resets a box in a bounds array to an empty box.
+     *
+     * @param box    the bounds array
+     * @param offset the offset of the box in the array
+     */
+    private static void resetBox(double[] box, int offset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            box[offset + axis] = Double.POSITIVE_INFINITY;
+            box[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Expands a box in a bounds array to include another box.
+     * Shared by all the hierarchies that keep their boxes in flat bounds arrays.
+     *
+     * @param box         the bounds array of the box to expand
+     * @param offset      the offset of the box to expand
+     * @param other       the bounds array of the box to include
+     * @param otherOffset the offset of the box to include
+     */
+    static void includeBox(double[] box, int offset, double[] other, int otherOffset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+            box[offset + 3 + axis] = Math.max(box[offset + 3 + axis], other[otherOffset + 3 + axis]);
+        }
+    }
+
+    /**
+     * Calculates half of the surface area of a box in a bounds array - proportional to the probability
+     * of a random ray hitting it.
+     *
+     * @param bounds the bounds array
+     * @param offset the offset of the box
+     * @return half of the surface area
+     */
+    static double halfArea(double[] bounds, int offset) {
+        double dx = bounds[offset + 3] - bounds[offset];
+        double dy = bounds[offset + 4] - bounds[offset + 1];
+        double dz = bounds[offset + 5] - bounds[offset + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * Calculates half of the surface area of a bounding box.
+     *
+     * @param box the box
+     * @return half of the surface area
+     */
+    static double halfArea(AABB box) {
+        Point min = box.getMin();
+        Point max = box.getMax();
+        double dx = max.getX() - min.getX();
+        double dy = max.getY() - min.getY();
+        double dz = max.getZ() - min.getZ();
+        return dx * dy + dy * dz + dz * dx;
+    }
+}
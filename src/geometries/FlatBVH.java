@@ -0,0 +1,522 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The FlatBVH class is a compiled, array-backed form of a {@link BVHNode} hierarchy.
+ * The nodes are stored in depth-first order in primitive arrays - the bounds of node i occupy
+ * {@code bounds[6i .. 6i+5]} and its links occupy {@code links[2i]} and {@code links[2i+1]}:
+ * <ul>
+ * <li>an inner node keeps the index of its second child and a count of 0 - its first child is node i+1</li>
+ * <li>a leaf keeps the index of its first primitive in {@link #primitives} and the number of its primitives</li>
+ * </ul>
+ * The traversal walks the arrays with an explicit stack of node indices instead of recursive calls,
+ * so a box test reads six consecutive doubles instead of chasing the references of the nodes.
+ * Closest-hit queries visit the nearer child of every node first.
+ * <p>
+ * When the primitives move, the bounds can be refit bottom-up while keeping the topology (see {@link #refit()}).
+ * A refit tree gets looser as the primitives drift away from the places they were grouped by, which is measured
+ * by its SAH cost relative to the cost right after the build (see {@link #getSahDegradation()}).
+ */
+public class FlatBVH extends Intersectable {
+
+    /**
+     * The bounds of the nodes - 6 values per node: minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] bounds;
+
+    /**
+     * The links of the nodes - 2 values per node, see the class description.
+     */
+    private final int[] links;
+
+    /**
+     * The primitives, ordered so the primitives of every leaf are consecutive.
+     */
+    private final Intersectable[] primitives;
+
+    /**
+     * The depth of the hierarchy - the size of the traversal stack.
+     */
+    private final int depth;
+
+    /**
+     * The parent of every node, -1 for the root.
+     */
+    private final int[] parents;
+
+    /**
+     * The leaf node of every primitive, created on the first refit of selected primitives.
+     */
+    private Map<Intersectable, Integer> leaves;
+
+    /**
+     * The SAH cost of the hierarchy right after it was built.
+     */
+    private final double buildCost;
+
+    /**
+     * The sum of the surface areas of the nodes, each weighted by its cost -
+     * 1 for an inner node and the number of primitives for a leaf.
+     */
+    private double weightedArea;
+
+    /**
+     * The bounding box of the whole hierarchy.
+     */
+    private AABB boundingBox;
+
+    /**
+     * Compiles a BVHNode hierarchy into the flat layout.
+     *
+     * @param tree the root of the hierarchy
+     */
+    public FlatBVH(BVHNode tree) {
+        int capacity = 2 * tree.getNodeCount() + 1;
+        Compiler compiler = new Compiler(capacity);
+        compiler.compile(tree, 1, -1);
+
+        bounds = Arrays.copyOf(compiler.bounds, compiler.nodeCount * 6);
+        links = Arrays.copyOf(compiler.links, compiler.nodeCount * 2);
+        parents = Arrays.copyOf(compiler.parents, compiler.nodeCount);
+        primitives = compiler.primitives.toArray(new Intersectable[0]);
+        depth = compiler.depth;
+        boundingBox = tree.getBoundingBox();
+        weightedArea = computeWeightedArea();
+        buildCost = getSahCost();
+    }
+
+    /**
+     * Helper that lays out the nodes of a BVHNode hierarchy in depth-first order.
+     */
+    private static class Compiler {
+        private final double[] bounds;
+        private final int[] links;
+        private final int[] parents;
+        private final List<Intersectable> primitives = new ArrayList<>();
+        private int nodeCount = 0;
+        private int depth = 0;
+
+        /**
+         * Constructs a compiler.
+         *
+         * @param capacity the maximal number of nodes
+         */
+        Compiler(int capacity) {
+            bounds = new double[capacity * 6];
+            links = new int[capacity * 2];
+            parents = new int[capacity];
+        }
+
+        /**
+         * Lays out a sub-hierarchy, starting at the next free node.
+         *
+         * @param item   the root of the sub-hierarchy - a BVHNode or a primitive
+         * @param level  the depth of the sub-hierarchy's root
+         * @param parent the index of the parent node, -1 for the root
+         */
+        void compile(Intersectable item, int level, int parent) {
+            depth = Math.max(depth, level);
+            int index = nodeCount++;
+            parents[index] = parent;
+            item.getBoundingBox().copyTo(bounds, index * 6);
+
+            if (item instanceof BVHNode node
+                    && (node.getLeft() instanceof BVHNode || node.getRight() instanceof BVHNode)) {
+                compile(node.getLeft(), level + 1, index);
+                links[index * 2] = nodeCount;
+                links[index * 2 + 1] = 0;
+                compile(node.getRight(), level + 1, index);
+                return;
+            }
+
+            // a leaf - either a single primitive or a node whose children are both primitives
+            links[index * 2] = primitives.size();
+            if (item instanceof BVHNode node) {
+                primitives.add(node.getLeft());
+                if (node.getRight() != null) primitives.add(node.getRight());
+            } else {
+                primitives.add(item);
+            }
+            links[index * 2 + 1] = primitives.size() - links[index * 2];
+        }
+    }
+
+    /**
+     * Checks if a ray intersects the box of a node within the interval [tMin, tMax].
+     *
+     * @param index the node index
+     * @param ray   the ray
+     * @param tMin  the lower bound of the distance
+     * @param tMax  the upper bound of the distance
+     * @return true if the ray intersects the box within the interval
+     */
+    private boolean intersectsNode(int index, Ray ray, double tMin, double tMax) {
+        return AABB.entryDistance(bounds, index * 6, ray, tMin, tMax) != Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        List<GeoPoint> intersections = null;
+        while (top > 0) {
+            int index = stack[--top];
+            if (!intersectsNode(index, ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)) continue;
+
+            int count = links[index * 2 + 1];
+            if (count == 0) {
+                stack[top++] = links[index * 2];
+                stack[top++] = index + 1;
+                continue;
+            }
+            for (int i = links[index * 2], end = i + count; i < end; ++i) {
+                List<GeoPoint> found = primitives[i].findGeoIntersections(ray);
+                if (found != null) {
+                    if (intersections == null) intersections = new ArrayList<>();
+                    intersections.addAll(found);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection with a front-to-back traversal.
+     * The children of an inner node are pushed so the one whose box the ray enters first is popped first,
+     * together with their entry distances. A node popped after an intersection closer than its entry
+     * distance was found cannot contain a closer one, so it is skipped without another box test.
+     *
+     * @param ray  the ray to intersect with the geometric objects
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        double rootEntry = AABB.entryDistance(bounds, 0, ray, tMin, tMax);
+        if (rootEntry == Double.POSITIVE_INFINITY) return null;
+
+        int[] stack = new int[depth + 1];
+        double[] entries = new double[depth + 1];
+        int top = 0;
+        stack[top] = 0;
+        entries[top++] = rootEntry;
+
+        GeoPoint closest = null;
+        while (top > 0) {
+            int index = stack[--top];
+            if (entries[top] >= tMax) continue;
+
+            int count = links[index * 2 + 1];
+            if (count == 0) {
+                int near = index + 1;
+                int far = links[index * 2];
+                double nearEntry = AABB.entryDistance(bounds, near * 6, ray, tMin, tMax);
+                double farEntry = AABB.entryDistance(bounds, far * 6, ray, tMin, tMax);
+                if (farEntry < nearEntry) {
+                    int temp = near;
+                    near = far;
+                    far = temp;
+                    double entry = nearEntry;
+                    nearEntry = farEntry;
+                    farEntry = entry;
+                }
+                if (farEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = far;
+                    entries[top++] = farEntry;
+                }
+                if (nearEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = near;
+                    entries[top++] = nearEntry;
+                }
+                continue;
+            }
+            for (int i = links[index * 2], end = i + count; i < end; ++i) {
+                GeoPoint found = primitives[i].findClosestGeoIntersection(ray, tMin, tMax);
+                if (found != null) {
+                    closest = found;
+                    tMax = ray.getP0().distance(found.point);
+                }
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int index = stack[--top];
+            if (!intersectsNode(index, ray, 0, maxDistance)) continue;
+
+            int count = links[index * 2 + 1];
+            if (count == 0) {
+                stack[top++] = links[index * 2];
+                stack[top++] = index + 1;
+                continue;
+            }
+            for (int i = links[index * 2], end = i + count; i < end; ++i) {
+                ktr = primitives[i].findTransparency(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO)) return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Finds the index of the first ray of a packet that hits the box of a node within its interval.
+     * A node is popped with the first ray that hit its parent - the rays before it missed an ancestor of the node,
+     * and their intervals only shrink, so they are not tested again.
+     *
+     * @param index  the node index
+     * @param packet the rays
+     * @param first  the first ray that may hit the box
+     * @return the index of the first ray that hits the box, or the size of the packet if none does
+     */
+    private int firstHit(int index, RayPacket packet, int first) {
+        if (packet.missesBox(bounds, index * 6)) return packet.size();
+        while (first < packet.size() && packet.entryDistance(bounds, index * 6, first) == Double.POSITIVE_INFINITY)
+            ++first;
+        return first;
+    }
+
+    /**
+     * Finds the closest intersections of a packet with a single traversal of the hierarchy.
+     * A node is visited once for the whole packet if any of its rays hits the box, and its children are visited
+     * in the order of the first such ray, nearer center first. The primitives of a leaf are intersected by every
+     * ray that hits the leaf's box within its interval, which shrinks as closer intersections are found.
+     *
+     * @param packet the rays to intersect with the geometric objects
+     */
+    @Override
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+        int size = packet.size();
+        int[] stack = new int[depth + 1];
+        int[] firsts = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int index = stack[--top];
+            int first = firstHit(index, packet, firsts[top]);
+            if (first == size) continue;
+
+            int count = links[index * 2 + 1];
+            if (count == 0) {
+                int near = index + 1;
+                int far = links[index * 2];
+                if (isNearer(far, near, packet.getRay(first).getDir())) {
+                    near = far;
+                    far = index + 1;
+                }
+                stack[top] = far;
+                firsts[top++] = first;
+                stack[top] = near;
+                firsts[top++] = first;
+                continue;
+            }
+            for (int r = first; r < size; ++r) {
+                if (r > first && packet.entryDistance(bounds, index * 6, r) == Double.POSITIVE_INFINITY) continue;
+                Ray ray = packet.getRay(r);
+                for (int i = links[index * 2], end = i + count; i < end; ++i)
+                    packet.setHit(r, primitives[i].findClosestGeoIntersection(ray, packet.tMin[r], packet.tMax[r]));
+            }
+        }
+    }
+
+    /**
+     * Checks if the center of a node's box comes before the center of another node's box along a direction.
+     *
+     * @param a   the index of the first node
+     * @param b   the index of the second node
+     * @param dir the direction
+     * @return true if the first node is nearer
+     */
+    private boolean isNearer(int a, int b, Vector dir) {
+        double along = (bounds[a * 6] + bounds[a * 6 + 3] - bounds[b * 6] - bounds[b * 6 + 3]) * dir.getX()
+                + (bounds[a * 6 + 1] + bounds[a * 6 + 4] - bounds[b * 6 + 1] - bounds[b * 6 + 4]) * dir.getY()
+                + (bounds[a * 6 + 2] + bounds[a * 6 + 5] - bounds[b * 6 + 2] - bounds[b * 6 + 5]) * dir.getZ();
+        return along < 0;
+    }
+
+    /**
+     * Packet occlusion query with a single traversal of the hierarchy.
+     * The nodes are visited in the order of the single-ray query, so every ray accumulates the same transparency.
+     *
+     * @param packet the rays to intersect with the geometric objects
+     */
+    @Override
+    protected void findTransparenciesHelper(RayPacket packet) {
+        int size = packet.size();
+        int[] stack = new int[depth + 1];
+        int[] firsts = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int index = stack[--top];
+            int first = firstHit(index, packet, firsts[top]);
+            if (first == size) continue;
+
+            int count = links[index * 2 + 1];
+            if (count == 0) {
+                stack[top] = links[index * 2];
+                firsts[top++] = first;
+                stack[top] = index + 1;
+                firsts[top++] = first;
+                continue;
+            }
+            for (int r = first; r < size; ++r) {
+                if (r > first && packet.entryDistance(bounds, index * 6, r) == Double.POSITIVE_INFINITY) continue;
+                Ray ray = packet.getRay(r);
+                for (int i = links[index * 2], end = i + count; i < end && !packet.isFinished(r); ++i)
+                    packet.setTransparency(r, primitives[i].findTransparency(ray, packet.tMax[r], packet.getTransparency(r)));
+            }
+        }
+    }
+
+    /**
+     * Recalculates the bounds of all the nodes from the current bounding boxes of the primitives, keeping the topology.
+     * The nodes are visited in reverse order, so the children of a node are always refit before it.
+     * Must not be called while the hierarchy is being traversed.
+     */
+    public void refit() {
+        for (int index = links.length / 2 - 1; index >= 0; --index)
+            refitNode(index);
+        weightedArea = computeWeightedArea();
+        boundingBox = nodeBox(0);
+    }
+
+    /**
+     * Recalculates the bounds of the nodes above the given primitives only, keeping the topology.
+     * Every primitive updates the nodes on its path to the root, stopping at the first node whose bounds
+     * did not change, so the cost depends on the number of moved primitives and not on the size of the hierarchy.
+     * Must not be called while the hierarchy is being traversed.
+     *
+     * @param moved the primitives whose bounding boxes changed
+     * @throws IllegalArgumentException if a primitive is not in the hierarchy
+     */
+    public void refit(List<? extends Intersectable> moved) {
+        if (leaves == null) {
+            leaves = new IdentityHashMap<>(primitives.length * 2);
+            for (int index = 0; index < parents.length; ++index)
+                for (int i = links[index * 2], end = i + links[index * 2 + 1]; i < end; ++i)
+                    leaves.put(primitives[i], index);
+        }
+        for (Intersectable primitive : moved) {
+            Integer leaf = leaves.get(primitive);
+            if (leaf == null)
+                throw new IllegalArgumentException("The moved geometry is not in the hierarchy");
+            int index = leaf;
+            while (index >= 0 && refitNode(index))
+                index = parents[index];
+        }
+        boundingBox = nodeBox(0);
+    }
+
+    /**
+     * Recalculates the bounds of a node from its primitives (for a leaf) or from its children (for an inner node),
+     * and updates the weighted area by the change.
+     *
+     * @param index the node index
+     * @return true if the bounds of the node changed
+     */
+    private boolean refitNode(int index) {
+        double[] box = {
+                Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        int count = links[index * 2 + 1];
+        if (count == 0) {
+            BinnedSAH.includeBox(box, 0, bounds, (index + 1) * 6);
+            BinnedSAH.includeBox(box, 0, bounds, links[index * 2] * 6);
+        } else {
+            double[] primitiveBox = new double[6];
+            for (int i = links[index * 2], end = i + count; i < end; ++i) {
+                primitives[i].getBoundingBox().copyTo(primitiveBox, 0);
+                BinnedSAH.includeBox(box, 0, primitiveBox, 0);
+            }
+        }
+
+        int offset = index * 6;
+        if (Arrays.equals(box, 0, 6, bounds, offset, offset + 6)) return false;
+        double weight = count == 0 ? 1 : count;
+        weightedArea -= weight * BinnedSAH.halfArea(bounds, offset);
+        System.arraycopy(box, 0, bounds, offset, 6);
+        weightedArea += weight * BinnedSAH.halfArea(bounds, offset);
+        return true;
+    }
+
+    /**
+     * Calculates the sum of the surface areas of all the nodes, each weighted by its cost.
+     *
+     * @return the weighted area
+     */
+    private double computeWeightedArea() {
+        double sum = 0;
+        for (int index = 0; index < parents.length; ++index) {
+            int count = links[index * 2 + 1];
+            sum += (count == 0 ? 1 : count) * BinnedSAH.halfArea(bounds, index * 6);
+        }
+        return sum;
+    }
+
+    /**
+     * Creates the bounding box of a node.
+     *
+     * @param index the node index
+     * @return the bounding box
+     */
+    private AABB nodeBox(int index) {
+        int offset = index * 6;
+        return new AABB(new Point(bounds[offset], bounds[offset + 1], bounds[offset + 2]),
+                new Point(bounds[offset + 3], bounds[offset + 4], bounds[offset + 5]));
+    }
+
+    /**
+     * Gets the SAH cost of the hierarchy - the expected cost of a ray through the root box, with a node box test
+     * costing 1 and a primitive test costing 1: the sum of the node areas weighted by their costs,
+     * relative to the area of the root.
+     *
+     * @return the SAH cost
+     */
+    public double getSahCost() {
+        double rootArea = BinnedSAH.halfArea(bounds, 0);
+        return rootArea > 0 ? weightedArea / rootArea : 1;
+    }
+
+    /**
+     * Gets the degradation of the hierarchy since it was built, caused by refitting it to moved primitives.
+     *
+     * @return the ratio of the current SAH cost to the SAH cost right after the build - 1 for a fresh hierarchy
+     */
+    public double getSahDegradation() {
+        return buildCost > 0 ? getSahCost() / buildCost : 1;
+    }
+
+    /**
+     * Gets the number of nodes, counting every leaf as a node.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return links.length / 2;
+    }
+
+    @Override
+    public AABB getBoundingBox() {
+        return boundingBox;
+    }
+}
@@ -3,18 +3,178 @@ package geometries;
 import primitives.*;
 
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * The Geometries class represents a collection of geometric objects.
  * It is used to group multiple geometries together and perform operations on them as a whole.
+ * <p>
+ * A collection nested in another collection, directly or through an {@link Instance}, keeps its own hierarchy
+ * and is a single leaf with a single box in the hierarchy of its parent. This gives a two-level structure:
+ * the bottom-level hierarchies of the objects are built once, and the top-level hierarchy over the objects
+ * and instances is cheap to rebuild (see {@link #rebuild()}) when they move, e.g. once per frame of an animation.
  */
 public class Geometries extends Intersectable {
 
-    private final List<Intersectable> geometries = new LinkedList<>();
+    /**
+     * The strategies for building the bounding volume hierarchy - a trade-off between build time and trace time.
+     */
+    public enum BuildStrategy {
+        /**
+         * Binned Surface Area Heuristic build (see {@link BVHNode}) - the fastest to trace, the slowest to build.
+         */
+        SAH,
+        /**
+         * Linear build over Morton codes (see {@link LinearBVH}) - the fastest to build, for very large scenes
+         * and quick iterations.
+         */
+        LBVH,
+        /**
+         * Linear build followed by the treelet optimization pass - a build time close to {@link #LBVH}
+         * and a trace time close to {@link #SAH}.
+         */
+        LBVH_TREELETS
+    }
+
+    /**
+     * The geometries added to the collection, kept until the hierarchy is built.
+     */
+    private final List<Intersectable> geometries = new ArrayList<>();
+
+    /**
+     * The hierarchy built over the geometries, built lazily - null while it must be (re)built.
+     */
+    private volatile Hierarchy hierarchy;
+
+    /**
+     * The strategy for building the hierarchy.
+     */
+    private BuildStrategy buildStrategy = BuildStrategy.SAH;
+
+    /**
+     * The number of children of a node of the compiled hierarchy - 2 for {@link FlatBVH}, 4 for {@link QuadBVH}.
+     */
+    private int nodeWidth = 2;
+
+    /**
+     * The degradation of the hierarchy (see {@link FlatBVH#getSahDegradation()}) beyond which a refit
+     * is replaced by a full rebuild.
+     */
+    private double rebuildThreshold = 1.5;
+
+    /**
+     * Logger for reporting problems found while building the hierarchy.
+     */
+    private static final Logger logger = Logger.getLogger("Geometries");
+
+    /**
+     * The result of building the hierarchy, published at once to the rendering threads.
+     * Its fields are final, but a refit updates the bounds of the compiled binary tree in place,
+     * so the hierarchy must not be refit while it is traversed (see {@link #refit(Intersectable...)}).
+     * Bounded geometries are kept in a bounding volume hierarchy. Unbounded geometries, such as planes,
+     * are kept out of it in a flat array that is tested alongside it, since an infinite box
+     * would make the boxes of all its ancestors infinite and stop them from culling anything.
+     */
+    private static final class Hierarchy {
+        /**
+         * The depth of the bounding volume hierarchy when it was built, 0 if there are no bounded geometries.
+         * A refit keeps the topology, so it keeps the depth.
+         */
+        final int depth;
 
-    private Intersectable root;
+        /**
+         * The number of nodes of the bounding volume hierarchy, 0 if there are no bounded geometries.
+         */
+        final int nodeCount;
+
+        /**
+         * The compiled binary form of the tree, which can be refit, null if there is no tree or it is compiled 4-wide.
+         */
+        final FlatBVH root;
+
+        /**
+         * The compiled form of the tree used for the intersection queries - the binary or the 4-wide one,
+         * null if there is no tree.
+         */
+        final Intersectable traversal;
+
+        /**
+         * The unbounded geometries.
+         */
+        final Intersectable[] unbounded;
+
+        /**
+         * Builds the hierarchy over a list of geometries.
+         *
+         * @param geometries the geometries, not empty
+         * @param strategy   the strategy for building the tree
+         * @param nodeWidth  the number of children of a node of the compiled tree, 2 or 4
+         */
+        Hierarchy(List<Intersectable> geometries, BuildStrategy strategy, int nodeWidth) {
+            List<Intersectable> bounded = new ArrayList<>();
+            List<Intersectable> unboundedList = new ArrayList<>();
+            for (Intersectable geometry : geometries) {
+                AABB box = geometry.getBoundingBox();
+                if (box != null && box.isFinite()) bounded.add(geometry);
+                else {
+                    unboundedList.add(geometry);
+                    if (geometry instanceof Geometries || geometry instanceof Instance)
+                        logger.log(Level.WARNING, () -> "A nested " + geometry.getClass().getSimpleName()
+                                + " has an infinite bounding box, so the whole group is tested on every ray -"
+                                + " keep its unbounded geometries at the top level");
+                }
+            }
 
-    private AABB boundingBox;
+            BVHNode tree = bounded.isEmpty() ? null : switch (strategy) {
+                case SAH -> new BVHNode(bounded);
+                case LBVH -> LinearBVH.build(bounded.toArray(new Intersectable[0]), false, true);
+                case LBVH_TREELETS -> LinearBVH.build(bounded.toArray(new Intersectable[0]), true, true);
+            };
+            root = tree == null || nodeWidth != 2 ? null : new FlatBVH(tree);
+            traversal = tree == null ? null : root != null ? root : new QuadBVH(tree);
+            unbounded = unboundedList.toArray(new Intersectable[0]);
+            depth = tree == null ? 0 : tree.getDepth();
+            nodeCount = tree == null ? 0 : tree.getNodeCount();
+
+            if (!unboundedList.isEmpty()) {
+                logger.log(Level.FINE, unboundedList.size() + " unbounded geometries are kept out of the bounding volume hierarchy");
+            }
+        }
+
+        /**
+         * Gets the bounding box of all the geometries - the current box of the tree, infinite if there are
+         * unbounded geometries.
+         *
+         * @return the bounding box
+         */
+        AABB getBoundingBox() {
+            return unbounded.length == 0 ? traversal.getBoundingBox() : AABB.infinite();
+        }
+
+        /**
+         * Checks if a geometry was kept out of the tree as unbounded when the hierarchy was built.
+         *
+         * @param geometry the geometry
+         * @return true if the geometry is one of the unbounded geometries
+         */
+        boolean isUnbounded(Intersectable geometry) {
+            for (Intersectable item : unbounded)
+                if (item == geometry) return true;
+            return false;
+        }
+
+        /**
+         * Checks if a geometry is bounded now, but was kept out of the tree when the hierarchy was built, or vice versa.
+         *
+         * @param geometry the geometry
+         * @return true if the geometry must move into or out of the tree
+         */
+        boolean boundednessChanged(Intersectable geometry) {
+            AABB box = geometry.getBoundingBox();
+            return (box != null && box.isFinite()) == isUnbounded(geometry);
+        }
+    }
 
     /**
      * Default constructor for Geometries.
@@ -34,15 +194,219 @@ public class Geometries extends Intersectable {
 
     /**
      * Adds geometries to the list.
+     * The hierarchy is not built here - it is built once over all the geometries,
+     * either by {@link #build()} or on the first intersection query.
      *
      * @param geometries the geometries to add
      */
     public void add(Intersectable... geometries) {
-        List<Intersectable> allGeometries = new ArrayList<>(Arrays.asList(geometries));
-        if (root != null) {
-            allGeometries.add(root);
+        synchronized (this.geometries) {
+            this.geometries.addAll(Arrays.asList(geometries));
+            hierarchy = null;
+        }
+    }
+
+    /**
+     * Builds the bounding volume hierarchy over all the geometries added so far.
+     * Calling it is optional - the hierarchy is built on the first intersection query anyway -
+     * but it allows paying the build cost up front. Adding geometries afterwards causes a rebuild.
+     *
+     * @return the current geometries object (for chaining)
+     */
+    public Geometries build() {
+        getHierarchy();
+        return this;
+    }
+
+    /**
+     * Rebuilds the hierarchy of this collection only, over the current bounding boxes of its geometries.
+     * To be called after the geometries were moved, e.g. by {@link Instance#setTransform}.
+     * Nested collections and the geometries referenced by instances keep their own hierarchies,
+     * so the cost depends on the number of geometries in this collection and not on their contents.
+     *
+     * @return the current geometries object (for chaining)
+     */
+    public Geometries rebuild() {
+        synchronized (geometries) {
+            long start = System.nanoTime();
+            hierarchy = geometries.isEmpty() ? null : new Hierarchy(geometries, buildStrategy, nodeWidth);
+            logger.log(Level.FINE, () -> String.format("Rebuilt the hierarchy over %d geometries in %.3f ms",
+                    geometries.size(), (System.nanoTime() - start) / 1e6));
+        }
+        return this;
+    }
+
+    /**
+     * Gets the hierarchy over the geometries, building it first if needed.
+     *
+     * @return the hierarchy, or null if there are no geometries
+     */
+    private Hierarchy getHierarchy() {
+        Hierarchy built = hierarchy;
+        if (built == null) {
+            synchronized (geometries) {
+                built = hierarchy;
+                if (built == null && !geometries.isEmpty()) {
+                    hierarchy = built = new Hierarchy(geometries, buildStrategy, nodeWidth);
+                }
+            }
         }
-        root = new BVHNode(allGeometries);
+        return built;
+    }
+
+    /**
+     * Gets the depth of the bounding volume hierarchy (building it first if needed).
+     *
+     * @return the number of nodes on the longest path from the root to a leaf, 0 if there are no bounded geometries
+     */
+    public int getDepth() {
+        Hierarchy built = getHierarchy();
+        return built == null ? 0 : built.depth;
+    }
+
+    /**
+     * Gets the number of nodes of the bounding volume hierarchy (building it first if needed).
+     *
+     * @return the number of nodes, 0 if there are no bounded geometries
+     */
+    public int getNodeCount() {
+        Hierarchy built = getHierarchy();
+        return built == null ? 0 : built.nodeCount;
+    }
+
+    /**
+     * Gets the number of unbounded geometries, which are kept out of the bounding volume hierarchy
+     * (building it first if needed).
+     *
+     * @return the number of unbounded geometries
+     */
+    public int getUnboundedCount() {
+        Hierarchy built = getHierarchy();
+        return built == null ? 0 : built.unbounded.length;
+    }
+
+    /**
+     * Sets the number of children of a node of the compiled hierarchy - the built hierarchy, if any, is discarded.
+     * A 4-wide hierarchy (see {@link QuadBVH}) is about half as deep and tests four boxes at once,
+     * but it cannot be refit, so {@link #refit} rebuilds it.
+     *
+     * @param nodeWidth 2 for a binary hierarchy (the default), 4 for a 4-wide one
+     * @return the current geometries object (for chaining)
+     * @throws IllegalArgumentException if the width is not 2 or 4
+     */
+    public Geometries setNodeWidth(int nodeWidth) {
+        if (nodeWidth != 2 && nodeWidth != 4)
+            throw new IllegalArgumentException("Node width must be 2 or 4");
+        synchronized (geometries) {
+            this.nodeWidth = nodeWidth;
+            hierarchy = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the strategy for building the hierarchy - the built hierarchy, if any, is discarded.
+     *
+     * @param buildStrategy the strategy
+     * @return the current geometries object (for chaining)
+     */
+    public Geometries setBuildStrategy(BuildStrategy buildStrategy) {
+        synchronized (geometries) {
+            this.buildStrategy = buildStrategy;
+            hierarchy = null;
+        }
+        return this;
+    }
+
+    /**
+     * Sets the degradation of the hierarchy beyond which {@link #refit} rebuilds it instead.
+     *
+     * @param rebuildThreshold the ratio of the SAH cost after refitting to the SAH cost after the build, at least 1
+     * @return the current geometries object (for chaining)
+     * @throws IllegalArgumentException if the threshold is less than 1
+     */
+    public Geometries setRebuildThreshold(double rebuildThreshold) {
+        if (rebuildThreshold < 1)
+            throw new IllegalArgumentException("Rebuild threshold must be at least 1");
+        this.rebuildThreshold = rebuildThreshold;
+        return this;
+    }
+
+    /**
+     * Gets the degradation of the hierarchy since it was built (building it first if needed).
+     *
+     * @return the ratio of the current SAH cost to the SAH cost right after the build, 1 if there is no hierarchy
+     */
+    public double getSahDegradation() {
+        Hierarchy built = getHierarchy();
+        return built == null || built.root == null ? 1 : built.root.getSahDegradation();
+    }
+
+    /**
+     * Updates the hierarchy after some of the geometries moved, keeping its topology - the bounds of the nodes
+     * above the moved geometries are recalculated bottom-up, so the cost depends on the number of moved geometries.
+     * The hierarchy is rebuilt instead if a moved geometry became bounded or unbounded, or if the refit degraded it
+     * beyond the rebuild threshold (see {@link #setRebuildThreshold(double)}).
+     * A moved geometry nested in a collection must be refit in that collection first, and then the collection
+     * itself is a moved geometry of its parent.
+     * <p>
+     * The bounds are updated in place, so this must not be called during a render - only between frames.
+     *
+     * @param moved the geometries of this collection whose bounding boxes changed
+     * @return the current geometries object (for chaining)
+     * @throws IllegalArgumentException if a geometry is not in this collection
+     */
+    public Geometries refit(Intersectable... moved) {
+        synchronized (geometries) {
+            Hierarchy built = hierarchy;
+            if (built == null) return build();
+
+            List<Intersectable> bounded = new ArrayList<>(moved.length);
+            for (Intersectable geometry : moved) {
+                if (built.boundednessChanged(geometry)) return rebuild();
+                if (!built.isUnbounded(geometry)) bounded.add(geometry);
+            }
+            if (bounded.isEmpty()) return afterRefit(built);
+            if (built.root == null) return rebuild();
+            built.root.refit(bounded);
+            return afterRefit(built);
+        }
+    }
+
+    /**
+     * Updates the hierarchy after any of the geometries moved, keeping its topology - the bounds of all the nodes
+     * are recalculated bottom-up. The hierarchy is rebuilt instead under the same conditions as {@link #refit(Intersectable...)}.
+     * Like it, this must not be called during a render.
+     *
+     * @return the current geometries object (for chaining)
+     */
+    public Geometries refit() {
+        synchronized (geometries) {
+            Hierarchy built = hierarchy;
+            if (built == null) return build();
+
+            for (Intersectable geometry : geometries)
+                if (built.boundednessChanged(geometry)) return rebuild();
+            if (built.traversal != null && built.root == null) return rebuild();
+            if (built.root != null) built.root.refit();
+            return afterRefit(built);
+        }
+    }
+
+    /**
+     * Finishes a refit - rebuilds the hierarchy if the refit degraded it too much.
+     *
+     * @param built the refit hierarchy
+     * @return the current geometries object (for chaining)
+     */
+    private Geometries afterRefit(Hierarchy built) {
+        if (built.root == null) return this;
+        double degradation = built.root.getSahDegradation();
+        if (degradation > rebuildThreshold) {
+            logger.log(Level.FINE, () -> String.format("Refit degraded the hierarchy by %.2f - rebuilding it", degradation));
+            return rebuild();
+        }
+        return this;
     }
 
     /**
@@ -53,60 +417,107 @@ public class Geometries extends Intersectable {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-//        List<GeoPoint> Intersections = null;
-//
-//        for (Intersectable geometry : geometries) {
-//            List<GeoPoint> tempGeoIntersections = geometry.findGeoIntersectionsHelper(ray);
-//            if (tempGeoIntersections != null) {
-//                if (Intersections == null) {
-//                    Intersections = new ArrayList<>();
-//                }
-//                Intersections.addAll(tempGeoIntersections);
-//            }
-//        }
-//        return Intersections;
-        return root != null ? root.findGeoIntersections(ray) : null;
+        Hierarchy built = getHierarchy();
+        if (built == null) return null;
+
+        List<GeoPoint> intersections = built.traversal != null ? built.traversal.findGeoIntersections(ray) : null;
+        for (Intersectable geometry : built.unbounded) {
+            List<GeoPoint> found = geometry.findGeoIntersections(ray);
+            if (found != null) {
+                if (intersections == null) intersections = new ArrayList<>(found);
+                else intersections.addAll(found);
+            }
+        }
+        return intersections;
     }
 
     /**
-     * Gets the axis-aligned bounding box (AABB) that encompasses this collection of geometries.
+     * Finds the closest intersection of the given ray with the geometries in the list within the interval (tMin, tMax).
+     * The unbounded geometries are tested first, so their closest intersection bounds the search in the hierarchy.
      *
-     * @return the bounding box of this collection of geometries
+     * @param ray  the ray to intersect with the geometries
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
      */
     @Override
-    public AABB getBoundingBox() {
-//        return boundingBox;
-        return root != null ? root.getBoundingBox() : null;
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        Hierarchy built = getHierarchy();
+        if (built == null) return null;
+
+        GeoPoint closest = null;
+        for (Intersectable geometry : built.unbounded) {
+            GeoPoint found = geometry.findClosestGeoIntersection(ray, tMin, tMax);
+            if (found != null) {
+                closest = found;
+                tMax = ray.getP0().distance(found.point);
+            }
+        }
+        if (built.traversal == null) return closest;
+
+        GeoPoint found = built.traversal.findClosestGeoIntersection(ray, tMin, tMax);
+        return found != null ? found : closest;
     }
 
     /**
-     * Updates the bounding box to encompass all the geometries in the list.
+     * Occlusion query over the geometries in the list.
+     *
+     * @param ray         the ray to intersect with the geometries
+     * @param maxDistance the distance beyond which intersections are ignored
+     * @param ktr         the transparency accumulated so far
+     * @return the accumulated transparency
      */
-    private void updateBoundingBox() {
-        if (geometries.isEmpty()) {
-            boundingBox = null;
-            return;
-        }
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        Hierarchy built = getHierarchy();
+        if (built == null) return ktr;
 
-        Point min = new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
-        Point max = new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
-
-        for (Intersectable geometry : geometries) {
-            AABB geoBBox = geometry.getBoundingBox();
-            if (geoBBox != null) {
-                min = new Point(
-                        Math.min(min.getX(), geoBBox.getMin().getX()),
-                        Math.min(min.getY(), geoBBox.getMin().getY()),
-                        Math.min(min.getZ(), geoBBox.getMin().getZ())
-                );
-                max = new Point(
-                        Math.max(max.getX(), geoBBox.getMax().getX()),
-                        Math.max(max.getY(), geoBBox.getMax().getY()),
-                        Math.max(max.getZ(), geoBBox.getMax().getZ())
-                );
-            }
+        for (Intersectable geometry : built.unbounded) {
+            ktr = geometry.findTransparency(ray, maxDistance, ktr);
+            if (ktr.equals(Double3.ZERO)) return Double3.ZERO;
         }
+        return built.traversal != null ? built.traversal.findTransparency(ray, maxDistance, ktr) : ktr;
+    }
 
-        boundingBox = new AABB(min, max);
+    /**
+     * Finds the closest intersections of a packet with the geometries in the list.
+     * The unbounded geometries are queried first, then the whole packet traverses the hierarchy together.
+     *
+     * @param packet the rays to intersect with the geometries
+     */
+    @Override
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+        Hierarchy built = getHierarchy();
+        if (built == null) return;
+
+        for (Intersectable geometry : built.unbounded)
+            geometry.findClosestGeoIntersections(packet);
+        if (built.traversal != null) built.traversal.findClosestGeoIntersections(packet);
+    }
+
+    /**
+     * Packet occlusion query over the geometries in the list.
+     *
+     * @param packet the rays to intersect with the geometries
+     */
+    @Override
+    protected void findTransparenciesHelper(RayPacket packet) {
+        Hierarchy built = getHierarchy();
+        if (built == null) return;
+
+        for (Intersectable geometry : built.unbounded)
+            geometry.findTransparencies(packet);
+        if (built.traversal != null) built.traversal.findTransparencies(packet);
+    }
+
+    /**
+     * Gets the axis-aligned bounding box (AABB) that encompasses this collection of geometries.
+     *
+     * @return the bounding box of this collection of geometries
+     */
+    @Override
+    public AABB getBoundingBox() {
+        Hierarchy built = getHierarchy();
+        return built != null ? built.getBoundingBox() : null;
     }
-}
\ No newline at end of file
+}
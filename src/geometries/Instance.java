@@ -0,0 +1,244 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The Instance class places a shared geometry (a single shape, a mesh or a whole {@link Geometries}
+ * hierarchy) in the scene under an affine transformation. The geometry itself is not copied: a ray is moved
+ * into the object space of the geometry, intersected there, and the intersection is moved back. Any number of
+ * instances may share one geometry, so memory and hierarchy build time depend on the unique geometries only.
+ * <p>
+ * The distance along the object-space ray differs from the world-space distance by the length of the
+ * inverse-transformed ray direction, so the query intervals are scaled by it on the way in. The intersected
+ * geometry is reported through an {@link InstancedGeometry} view, which transforms the normals back to world space.
+ */
+public class Instance extends Intersectable {
+
+    /**
+     * The shared geometry.
+     */
+    private final Intersectable geometry;
+
+    /**
+     * The transformation from the object space of the geometry to world space.
+     */
+    private Transform transform;
+
+    /**
+     * The world-space bounding box.
+     */
+    private AABB boundingBox;
+
+    /**
+     * Constructs an instance of a geometry.
+     *
+     * @param geometry  the shared geometry
+     * @param transform the transformation from the object space of the geometry to world space
+     */
+    public Instance(Intersectable geometry, Transform transform) {
+        this.geometry = geometry;
+        setTransform(transform);
+    }
+
+    /**
+     * Gets the shared geometry.
+     *
+     * @return the geometry
+     */
+    public Intersectable getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Gets the transformation from object space to world space.
+     *
+     * @return the transformation
+     */
+    public Transform getTransform() {
+        return transform;
+    }
+
+    /**
+     * Moves the instance - sets the transformation from object space to world space.
+     * The shared geometry and its hierarchy are untouched, only the world bounding box of the instance
+     * is recalculated. The hierarchies of the collections containing the instance still hold its old box,
+     * so they must be updated afterwards (see {@link Geometries#refit(Intersectable...)}).
+     * The instance must not be moved while a rendering is in progress.
+     *
+     * @param transform the new transformation
+     * @return the current instance (for chaining)
+     */
+    public Instance setTransform(Transform transform) {
+        this.transform = transform;
+        boundingBox = transformBounds(geometry.getBoundingBox(), transform);
+        return this;
+    }
+
+    /**
+     * Moves a world-space ray into object space.
+     *
+     * @param ray the world-space ray
+     * @return the object-space ray, whose direction is normalized
+     */
+    private Ray toObject(Ray ray) {
+        return new Ray(transform.inverseTransformPoint(ray.getP0()), transform.inverseTransformVector(ray.getDir()));
+    }
+
+    /**
+     * Calculates the ratio of object-space distances to world-space distances along a ray.
+     *
+     * @param ray the world-space ray
+     * @return the length of the inverse-transformed direction of the ray
+     */
+    private double scaleOf(Ray ray) {
+        return transform.inverseTransformVector(ray.getDir()).length();
+    }
+
+    /**
+     * Moves an object-space intersection to world space.
+     *
+     * @param gp the object-space intersection
+     * @return the world-space intersection
+     */
+    private GeoPoint toWorld(GeoPoint gp) {
+        return new GeoPoint(new InstancedGeometry(this, gp.geometry), transform.transformPoint(gp.point));
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        if (!boundingBox.intersects(ray, 0, Double.POSITIVE_INFINITY)) return null;
+        List<GeoPoint> intersections = geometry.findGeoIntersections(toObject(ray));
+        if (intersections == null) return null;
+
+        List<GeoPoint> result = new ArrayList<>(intersections.size());
+        for (GeoPoint gp : intersections)
+            result.add(toWorld(gp));
+        return result;
+    }
+
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        if (!boundingBox.intersects(ray, tMin, tMax)) return null;
+        double scale = scaleOf(ray);
+        GeoPoint closest = geometry.findClosestGeoIntersection(toObject(ray), tMin * scale, tMax * scale);
+        return closest == null ? null : toWorld(closest);
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        if (!boundingBox.intersects(ray, 0, maxDistance)) return ktr;
+        return geometry.findTransparency(toObject(ray), maxDistance * scaleOf(ray), ktr);
+    }
+
+    @Override
+    public AABB getBoundingBox() {
+        return boundingBox;
+    }
+
+    /**
+     * Calculates the world-space bounding box of a transformed box - the box of its 8 transformed corners.
+     *
+     * @param box       the object-space box
+     * @param transform the transformation
+     * @return the world-space box, infinite if the object-space box is infinite
+     */
+    private static AABB transformBounds(AABB box, Transform transform) {
+        if (!box.isFinite()) return AABB.infinite();
+        Point min = box.getMin(), max = box.getMax();
+        AABB result = null;
+        for (int corner = 0; corner < 8; ++corner) {
+            Point p = transform.transformPoint(new Point(
+                    (corner & 1) == 0 ? min.getX() : max.getX(),
+                    (corner & 2) == 0 ? min.getY() : max.getY(),
+                    (corner & 4) == 0 ? min.getZ() : max.getZ()));
+            if (result == null) result = new AABB(p, p);
+            else result.expandToInclude(new AABB(p, p));
+        }
+        return result;
+    }
+
+    /**
+     * A world-space view of a geometry intersected through an instance.
+     * The material and emission are those of the geometry, and the normal is transformed to world space.
+     */
+    public static final class InstancedGeometry extends Geometry {
+        /**
+         * The instance through which the geometry was intersected.
+         */
+        private final Instance instance;
+
+        /**
+         * The transformation of the instance when the geometry was intersected.
+         */
+        private final Transform transform;
+
+        /**
+         * The intersected geometry, in object space.
+         */
+        private final Geometry geometry;
+
+        /**
+         * Constructs the world-space view of an intersected geometry.
+         *
+         * @param instance the instance
+         * @param geometry the intersected geometry
+         */
+        private InstancedGeometry(Instance instance, Geometry geometry) {
+            this.instance = instance;
+            this.transform = instance.transform;
+            this.geometry = geometry;
+        }
+
+        /**
+         * Gets the instance through which the geometry was intersected.
+         *
+         * @return the instance
+         */
+        public Instance getInstance() {
+            return instance;
+        }
+
+        /**
+         * Gets the intersected geometry, in object space.
+         *
+         * @return the geometry
+         */
+        public Geometry getGeometry() {
+            return geometry;
+        }
+
+        @Override
+        public Color getEmission() {
+            return geometry.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return geometry.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return transform.transformNormal(geometry.getNormal(transform.inverseTransformPoint(point)));
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+            List<GeoPoint> intersections = instance.findGeoIntersectionsHelper(ray);
+            if (intersections == null) return null;
+            List<GeoPoint> result = intersections.stream()
+                    .filter(gp -> ((InstancedGeometry) gp.geometry).geometry == geometry)
+                    .map(gp -> new GeoPoint(this, gp.point))
+                    .toList();
+            return result.isEmpty() ? null : result;
+        }
+
+        @Override
+        public AABB getBoundingBox() {
+            return transformBounds(geometry.getBoundingBox(), transform);
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package geometries;
 
+import primitives.Double3;
 import primitives.Point;
 import primitives.Ray;
 
 import java.util.List;
 
+import static primitives.Util.alignZero;
+
 /**
  * The Intersectable class represents a geometrical object that can be intersected by a ray.
  * It defines methods to find intersections between the object and a given ray.
@@ -77,6 +80,138 @@ public abstract class Intersectable {
      */
     protected abstract List<GeoPoint> findGeoIntersectionsHelper(Ray ray);
 
+    /**
+     * Finds the closest intersection between the ray and the geometrical object.
+     *
+     * @param ray the ray to intersect with the object
+     * @return the closest intersection, or null if no intersections are found
+     */
+    public GeoPoint findClosestGeoIntersection(Ray ray) {
+        return findClosestGeoIntersection(ray, 0, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the closest intersection between the ray and the geometrical object whose distance from
+     * the ray's head lies in the open interval (tMin, tMax).
+     *
+     * @param ray  the ray to intersect with the object
+     * @param tMin the lower bound of the distance (non-negative)
+     * @param tMax the upper bound of the distance - usually the distance of the closest intersection found so far
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    public GeoPoint findClosestGeoIntersection(Ray ray, double tMin, double tMax) {
+        return findClosestGeoIntersectionHelper(ray, tMin, tMax);
+    }
+
+    /**
+     * Helper method to find the closest intersection in the interval (tMin, tMax).
+     * The default implementation filters all the intersections found by {@link #findGeoIntersectionsHelper(Ray)};
+     * subclasses override it to reject intersections outside the interval as early as possible.
+     *
+     * @param ray  the ray to intersect with the object
+     * @param tMin the lower bound of the distance (non-negative)
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+        if (intersections == null) return null;
+
+        Point p0 = ray.getP0();
+        GeoPoint closest = null;
+        for (GeoPoint gp : intersections) {
+            double t = p0.distance(gp.point);
+            if (t > tMin && t < tMax) {
+                closest = gp;
+                tMax = t;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Occlusion query - calculates the transparency accumulated along a ray up to a given distance,
+     * e.g. along a shadow ray up to the light source.
+     * The query stops as soon as the accumulated transparency reaches zero (an opaque blocker was found),
+     * so the order of the intersections is irrelevant.
+     *
+     * @param ray         the ray to intersect with the object
+     * @param maxDistance the distance beyond which intersections are ignored
+     * @param ktr         the transparency accumulated so far
+     * @return the accumulated transparency multiplied by the transparency of every intersected geometry
+     */
+    public Double3 findTransparency(Ray ray, double maxDistance, Double3 ktr) {
+        return findTransparencyHelper(ray, maxDistance, ktr);
+    }
+
+    /**
+     * Helper method for the occlusion query.
+     * The default implementation goes over all the intersections found by {@link #findGeoIntersectionsHelper(Ray)}.
+     *
+     * @param ray         the ray to intersect with the object
+     * @param maxDistance the distance beyond which intersections are ignored
+     * @param ktr         the transparency accumulated so far
+     * @return the accumulated transparency
+     */
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        List<GeoPoint> intersections = findGeoIntersectionsHelper(ray);
+        if (intersections == null) return ktr;
+
+        Point p0 = ray.getP0();
+        for (GeoPoint gp : intersections) {
+            if (alignZero(p0.distance(gp.point) - maxDistance) <= 0) {
+                ktr = ktr.product(gp.geometry.getMaterial().kT);
+                if (ktr.equals(Double3.ZERO)) return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Finds the closest intersection of every ray of a packet within the current interval of the ray.
+     * The intersections are recorded in the packet, which shrinks the interval of every ray to its closest
+     * intersection, so the query can be repeated over several objects.
+     *
+     * @param packet the rays to intersect with the object
+     */
+    public void findClosestGeoIntersections(RayPacket packet) {
+        findClosestGeoIntersectionsHelper(packet);
+    }
+
+    /**
+     * Helper method for the packet closest intersection query.
+     * The default implementation queries the rays one by one; hierarchies override it to traverse their nodes
+     * once for the whole packet.
+     *
+     * @param packet the rays to intersect with the object
+     */
+    protected void findClosestGeoIntersectionsHelper(RayPacket packet) {
+        for (int r = 0; r < packet.size(); ++r)
+            packet.setHit(r, findClosestGeoIntersection(packet.getRay(r), packet.tMin[r], packet.tMax[r]));
+    }
+
+    /**
+     * Packet occlusion query - accumulates the transparency along every ray of a packet up to its maximal distance.
+     * The transparencies are recorded in the packet, and a ray is finished as soon as it becomes opaque.
+     *
+     * @param packet the rays to intersect with the object
+     */
+    public void findTransparencies(RayPacket packet) {
+        findTransparenciesHelper(packet);
+    }
+
+    /**
+     * Helper method for the packet occlusion query.
+     * The default implementation queries the unfinished rays one by one.
+     *
+     * @param packet the rays to intersect with the object
+     */
+    protected void findTransparenciesHelper(RayPacket packet) {
+        for (int r = 0; r < packet.size(); ++r)
+            if (!packet.isFinished(r))
+                packet.setTransparency(r, findTransparency(packet.getRay(r), packet.tMax[r], packet.getTransparency(r)));
+    }
+
     /**
      * Gets the axis-aligned bounding box (AABB) that encompasses this geometrical object.
      *
@@ -0,0 +1,503 @@
+package geometries;
+
+/**
+ * Linear bounding volume hierarchy (LBVH) builder - a fast alternative to the binned SAH build of {@link BVHNode}
+ * for scenes with millions of objects.
+ * <p>
+ * The centroids of the objects' boxes are quantized on a 2^21 grid per axis and interleaved into 63-bit Morton
+ * codes, which order the objects along a space-filling curve. The codes are sorted by a parallel radix sort, and
+ * every inner node of the hierarchy is then found independently of the others by the prefix of the codes it covers
+ * (Karras, "Maximizing Parallelism in the Construction of BVHs, Octrees, and k-d Trees", 2012), so the hierarchy
+ * is emitted in linear time. Equal codes are told apart by the object positions in the sorted order.
+ * Only 63-bit codes are implemented - 30-bit codes (10 bits per axis) would take 4 radix passes instead of 8,
+ * but would merge the objects of large scenes into the cells of a coarse 1024^3 grid.
+ * <p>
+ * The splits follow the grid rather than the surface areas, so the hierarchy is slower to trace than an SAH one.
+ * An optional pass restructures small treelets of the hierarchy bottom-up into their optimal SAH topology
+ * (Karras and Aila, "Fast Parallel Construction of High-Quality Bounding Volume Hierarchies", 2013),
+ * which regains most of the difference for a small part of the SAH build time.
+ * <p>
+ * The build produces the same hierarchy whether it runs in parallel or not.
+ */
+final class LinearBVH {
+
+    /**
+     * The number of bits of a quantized centroid coordinate.
+     */
+    private static final int BITS_PER_AXIS = 21;
+
+    /**
+     * The number of bits sorted by a pass of the radix sort.
+     */
+    private static final int RADIX_BITS = 8;
+
+    /**
+     * The number of elements in a chunk of the parallel stages.
+     */
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    /**
+     * The number of leaves of a treelet restructured by the optimization pass.
+     */
+    private static final int TREELET_LEAVES = 5;
+
+    /**
+     * The relative improvement of the SAH cost below which a treelet is kept as is.
+     */
+    private static final double TREELET_EPSILON = 1e-9;
+
+    /**
+     * The objects, sorted by their Morton codes.
+     */
+    private final Intersectable[] objects;
+
+    /**
+     * The sorted Morton codes of the objects.
+     */
+    private final long[] codes;
+
+    /**
+     * The bounds of the sorted objects - 6 values per object.
+     */
+    private final double[] leafBounds;
+
+    /**
+     * The children of the inner nodes - the index of an inner node, or the complement (~i) of the index of an object.
+     * Inner node 0 is the root.
+     */
+    private final int[] left, right;
+
+    /**
+     * The bounds of the inner nodes - 6 values per node.
+     */
+    private final double[] nodeBounds;
+
+    /**
+     * The SAH cost of the subtree of every inner node - the sum of the areas of its nodes and objects.
+     */
+    private final double[] nodeCosts;
+
+    /**
+     * The inner nodes in post-order - every node follows its descendants.
+     */
+    private final int[] postOrder;
+
+    /**
+     * The leaves of the treelet being optimized - inner nodes or complements of object positions.
+     */
+    private final int[] treeletLeaves = new int[TREELET_LEAVES];
+
+    /**
+     * The inner nodes of the treelet being optimized, its root first.
+     */
+    private final int[] treeletInner = new int[TREELET_LEAVES - 1];
+
+    /**
+     * The boxes of the subsets of the treelet leaves - 6 values per subset.
+     */
+    private final double[] subsetBoxes = new double[(1 << TREELET_LEAVES) * 6];
+
+    /**
+     * The lowest SAH costs of the subsets of the treelet leaves.
+     */
+    private final double[] subsetCosts = new double[1 << TREELET_LEAVES];
+
+    /**
+     * The best partition of every subset of the treelet leaves - the part holding its lowest leaf.
+     */
+    private final int[] subsetPartitions = new int[1 << TREELET_LEAVES];
+
+    /**
+     * The number of inner nodes of the treelet already reused while rebuilding it.
+     */
+    private int reusedInner;
+
+    /**
+     * Builds the linear hierarchy over a set of bounded objects.
+     *
+     * @param objects  the objects, at least 2
+     * @param parallel whether the stages run in parallel
+     */
+    private LinearBVH(Intersectable[] objects, boolean parallel) {
+        int n = objects.length;
+        double[] bounds = BinnedSAH.boundsOf(objects);
+
+        // the centroid bounds of the objects, and the scales of the quantization grid
+        double[] min = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] max = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int i = 0; i < n; ++i)
+            for (int axis = 0; axis < 3; ++axis) {
+                double centroid = (bounds[i * 6 + axis] + bounds[i * 6 + 3 + axis]) / 2;
+                min[axis] = Math.min(min[axis], centroid);
+                max[axis] = Math.max(max[axis], centroid);
+            }
+        double[] scales = new double[3];
+        for (int axis = 0; axis < 3; ++axis) {
+            double extent = max[axis] - min[axis];
+            scales[axis] = extent > 0 && Double.isFinite(extent) ? ((1 << BITS_PER_AXIS) - 1) / extent : 0;
+        }
+
+        // compute and sort the Morton codes
+        long[] keys = new long[n];
+        int[] order = new int[n];
+        int chunks = chunkCount(n, parallel);
+        BinnedSAH.forEachChunk(chunks, c -> {
+            for (int i = BinnedSAH.chunkStart(0, n, chunks, c), end = BinnedSAH.chunkStart(0, n, chunks, c + 1); i < end; ++i) {
+                long code = 0;
+                for (int axis = 0; axis < 3; ++axis) {
+                    double centroid = (bounds[i * 6 + axis] + bounds[i * 6 + 3 + axis]) / 2;
+                    code |= spread(quantize(centroid, min[axis], scales[axis])) << (2 - axis);
+                }
+                keys[i] = code;
+                order[i] = i;
+            }
+        });
+        radixSort(keys, order, chunks);
+
+        this.objects = new Intersectable[n];
+        codes = keys;
+        leafBounds = new double[n * 6];
+        for (int i = 0; i < n; ++i) {
+            this.objects[i] = objects[order[i]];
+            System.arraycopy(bounds, order[i] * 6, leafBounds, i * 6, 6);
+        }
+
+        // every inner node is found independently of the others
+        left = new int[n - 1];
+        right = new int[n - 1];
+        int innerChunks = chunkCount(n - 1, parallel);
+        BinnedSAH.forEachChunk(innerChunks, c -> {
+            for (int i = BinnedSAH.chunkStart(0, n - 1, innerChunks, c),
+                 end = BinnedSAH.chunkStart(0, n - 1, innerChunks, c + 1); i < end; ++i)
+                emitNode(i);
+        });
+
+        postOrder = postOrder(n - 1);
+        nodeBounds = new double[(n - 1) * 6];
+        nodeCosts = new double[n - 1];
+        for (int node : postOrder) {
+            int offset = node * 6;
+            copyChildBox(left[node], nodeBounds, offset);
+            includeChildBox(right[node], nodeBounds, offset);
+            nodeCosts[node] = BinnedSAH.halfArea(nodeBounds, offset) + childCost(left[node]) + childCost(right[node]);
+        }
+    }
+
+    /**
+     * Builds a linear hierarchy over a set of bounded objects.
+     *
+     * @param objects          the objects, not empty
+     * @param optimizeTreelets whether the treelets of the hierarchy are restructured for a lower SAH cost
+     * @param parallel         whether the build runs in parallel
+     * @return the root of the hierarchy
+     */
+    static BVHNode build(Intersectable[] objects, boolean optimizeTreelets, boolean parallel) {
+        if (objects.length == 1) return new BVHNode(objects[0], null);
+        LinearBVH builder = new LinearBVH(objects, parallel);
+        if (optimizeTreelets)
+            for (int node : builder.postOrder)
+                builder.optimizeTreelet(node);
+        return (BVHNode) builder.toNode(0);
+    }
+
+    /**
+     * Calculates the number of chunks of a parallel stage.
+     *
+     * @param count    the number of elements
+     * @param parallel whether the stage runs in parallel
+     * @return the number of chunks, 1 for a sequential stage
+     */
+    private static int chunkCount(int count, boolean parallel) {
+        return parallel ? Math.max(1, (count + CHUNK_SIZE - 1) / CHUNK_SIZE) : 1;
+    }
+
+    /**
+     * Quantizes a centroid coordinate on the grid.
+     *
+     * @param value the coordinate
+     * @param min   the minimal coordinate
+     * @param scale the number of grid cells per unit
+     * @return the grid cell, in [0, 2^21)
+     */
+    private static long quantize(double value, double min, double scale) {
+        double cell = (value - min) * scale;
+        return cell > 0 ? Math.min((long) cell, (1L << BITS_PER_AXIS) - 1) : 0;
+    }
+
+    /**
+     * Spreads the 21 low bits of a value so that two zero bits separate every two bits.
+     *
+     * @param value the value
+     * @return the spread value, with its bits at the positions 0, 3, 6, ..., 60
+     */
+    static long spread(long value) {
+        long x = value & 0x1FFFFFL;
+        x = (x | x << 32) & 0x1F00000000FFFFL;
+        x = (x | x << 16) & 0x1F0000FF0000FFL;
+        x = (x | x << 8) & 0x100F00F00F00F00FL;
+        x = (x | x << 4) & 0x10C30C30C30C30C3L;
+        x = (x | x << 2) & 0x1249249249249249L;
+        return x;
+    }
+
+    /**
+     * Sorts non-negative keys together with their values - a stable least-significant-digit radix sort.
+     * Every pass counts the digits of the chunks in parallel, gives every chunk its own output positions for
+     * every digit, and scatters the chunks in parallel. A pass in which all the keys share a digit is skipped.
+     *
+     * @param keys   the keys, sorted in place
+     * @param values the values, reordered in place with their keys
+     * @param chunks the number of chunks to process in parallel
+     */
+    static void radixSort(long[] keys, int[] values, int chunks) {
+        int n = keys.length;
+        int radix = 1 << RADIX_BITS;
+        long[] keysFrom = keys, keysTo = new long[n];
+        int[] valuesFrom = values, valuesTo = new int[n];
+
+        for (int shift = 0; shift < Long.SIZE - 1; shift += RADIX_BITS) {
+            final int digitShift = shift;
+            final long[] fromKeys = keysFrom, toKeys = keysTo;
+            final int[] fromValues = valuesFrom, toValues = valuesTo;
+
+            int[][] offsets = new int[chunks][radix];
+            BinnedSAH.forEachChunk(chunks, c -> {
+                for (int i = BinnedSAH.chunkStart(0, n, chunks, c), end = BinnedSAH.chunkStart(0, n, chunks, c + 1); i < end; ++i)
+                    ++offsets[c][(int) (fromKeys[i] >>> digitShift) & radix - 1];
+            });
+
+            // the output positions - by digit, and by chunk within a digit, which keeps the sort stable
+            boolean trivial = false;
+            int position = 0;
+            for (int digit = 0; digit < radix; ++digit) {
+                int digitStart = position;
+                for (int c = 0; c < chunks; ++c) {
+                    int count = offsets[c][digit];
+                    offsets[c][digit] = position;
+                    position += count;
+                }
+                if (position - digitStart == n) trivial = true;
+            }
+            if (trivial) continue;
+
+            BinnedSAH.forEachChunk(chunks, c -> {
+                int[] next = offsets[c];
+                for (int i = BinnedSAH.chunkStart(0, n, chunks, c), end = BinnedSAH.chunkStart(0, n, chunks, c + 1); i < end; ++i) {
+                    int target = next[(int) (fromKeys[i] >>> digitShift) & radix - 1]++;
+                    toKeys[target] = fromKeys[i];
+                    toValues[target] = fromValues[i];
+                }
+            });
+            keysFrom = toKeys;
+            keysTo = fromKeys;
+            valuesFrom = toValues;
+            valuesTo = fromValues;
+        }
+
+        if (keysFrom != keys) {
+            System.arraycopy(keysFrom, 0, keys, 0, n);
+            System.arraycopy(valuesFrom, 0, values, 0, n);
+        }
+    }
+
+    /**
+     * Calculates the length of the common prefix of the codes of two sorted objects.
+     * Equal codes are told apart by the positions of the objects.
+     *
+     * @param i the position of the first object
+     * @param j the position of the second object
+     * @return the length of the common prefix in bits, or -1 if j is out of range
+     */
+    private int commonPrefix(int i, int j) {
+        if (j < 0 || j >= codes.length) return -1;
+        long difference = codes[i] ^ codes[j];
+        return difference != 0 ? Long.numberOfLeadingZeros(difference) : Long.SIZE + Integer.numberOfLeadingZeros(i ^ j);
+    }
+
+    /**
+     * Finds the children of an inner node. Inner node i covers a range of objects that starts or ends at object i;
+     * its direction is towards the neighbor sharing the longer prefix, its length is found by an exponential search,
+     * and it is split where the common prefix of the range ends.
+     *
+     * @param i the inner node index
+     */
+    private void emitNode(int i) {
+        int direction = commonPrefix(i, i + 1) > commonPrefix(i, i - 1) ? 1 : -1;
+        int minPrefix = commonPrefix(i, i - direction);
+
+        int maxLength = 2;
+        while (commonPrefix(i, i + maxLength * direction) > minPrefix) maxLength *= 2;
+        int length = 0;
+        for (int step = maxLength / 2; step >= 1; step /= 2)
+            if (commonPrefix(i, i + (length + step) * direction) > minPrefix) length += step;
+        int j = i + length * direction;
+
+        int nodePrefix = commonPrefix(i, j);
+        int split = 0;
+        for (int divisor = 2; ; divisor *= 2) {
+            int step = (length + divisor - 1) / divisor;
+            if (commonPrefix(i, i + (split + step) * direction) > nodePrefix) split += step;
+            if (step == 1) break;
+        }
+        int gamma = i + split * direction + Math.min(direction, 0);
+
+        left[i] = Math.min(i, j) == gamma ? ~gamma : gamma;
+        right[i] = Math.max(i, j) == gamma + 1 ? ~(gamma + 1) : gamma + 1;
+    }
+
+    /**
+     * Lists the inner nodes in post-order.
+     *
+     * @param count the number of inner nodes
+     * @return the inner nodes, every node after its descendants
+     */
+    private int[] postOrder(int count) {
+        // a pre-order with the children swapped, reversed
+        int[] result = new int[count];
+        int[] stack = new int[count];
+        int top = 0, size = count;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            result[--size] = node;
+            if (left[node] >= 0) stack[top++] = left[node];
+            if (right[node] >= 0) stack[top++] = right[node];
+        }
+        return result;
+    }
+
+    /**
+     * Restructures the treelet rooted at an inner node into the topology of the lowest SAH cost.
+     * The treelet is grown from the node by repeatedly expanding its inner leaf with the largest area, up to
+     * {@link #TREELET_LEAVES} leaves. The optimal topology over its leaves is found by dynamic programming over
+     * the subsets of the leaves, and the inner nodes of the treelet are reused for it.
+     *
+     * @param root the root of the treelet
+     */
+    private void optimizeTreelet(int root) {
+        int[] leaves = treeletLeaves;
+        leaves[0] = left[root];
+        leaves[1] = right[root];
+        treeletInner[0] = root;
+        int count = 2;
+        while (count < TREELET_LEAVES) {
+            int best = -1;
+            double bestArea = -1;
+            for (int k = 0; k < count; ++k) {
+                if (leaves[k] < 0) continue;
+                double area = BinnedSAH.halfArea(nodeBounds, leaves[k] * 6);
+                if (area > bestArea) {
+                    bestArea = area;
+                    best = k;
+                }
+            }
+            if (best < 0) break;
+            int node = leaves[best];
+            treeletInner[count - 1] = node;
+            leaves[best] = left[node];
+            leaves[count++] = right[node];
+        }
+        if (count < 3) return;
+
+        int subsets = 1 << count;
+        for (int s = 1; s < subsets; ++s) {
+            int low = s & -s;
+            if (s == low) {
+                int k = Integer.numberOfTrailingZeros(s);
+                copyChildBox(leaves[k], subsetBoxes, s * 6);
+                subsetCosts[s] = childCost(leaves[k]);
+                continue;
+            }
+            System.arraycopy(subsetBoxes, low * 6, subsetBoxes, s * 6, 6);
+            BinnedSAH.includeBox(subsetBoxes, s * 6, subsetBoxes, (s ^ low) * 6);
+
+            // the partitions into two non-empty parts, each counted once - by the part holding the lowest leaf
+            double best = Double.POSITIVE_INFINITY;
+            for (int part = (s - 1) & s; part > 0; part = (part - 1) & s) {
+                if ((part & low) == 0) continue;
+                double cost = subsetCosts[part] + subsetCosts[s ^ part];
+                if (cost < best) {
+                    best = cost;
+                    subsetPartitions[s] = part;
+                }
+            }
+            subsetCosts[s] = BinnedSAH.halfArea(subsetBoxes, s * 6) + best;
+        }
+
+        int full = subsets - 1;
+        if (subsetCosts[full] >= nodeCosts[root] * (1 - TREELET_EPSILON)) return;
+        reusedInner = 1;
+        rebuildTreelet(root, full);
+    }
+
+    /**
+     * Rebuilds an inner node of the treelet being optimized over a subset of its leaves, by the best partitions.
+     *
+     * @param node   the inner node
+     * @param subset the subset of the treelet leaves, at least 2
+     */
+    private void rebuildTreelet(int node, int subset) {
+        int part = subsetPartitions[subset];
+        left[node] = treeletChild(part);
+        right[node] = treeletChild(subset ^ part);
+        System.arraycopy(subsetBoxes, subset * 6, nodeBounds, node * 6, 6);
+        nodeCosts[node] = subsetCosts[subset];
+    }
+
+    /**
+     * Gets the child of a rebuilt treelet node over a subset of the treelet leaves.
+     *
+     * @param subset the subset of the treelet leaves
+     * @return the leaf for a single leaf, otherwise a reused inner node rebuilt over the subset
+     */
+    private int treeletChild(int subset) {
+        if ((subset & subset - 1) == 0) return treeletLeaves[Integer.numberOfTrailingZeros(subset)];
+        int node = treeletInner[reusedInner++];
+        rebuildTreelet(node, subset);
+        return node;
+    }
+
+    /**
+     * Converts a subtree into BVHNode objects.
+     *
+     * @param child the root of the subtree - an inner node or the complement of an object position
+     * @return the BVHNode of an inner node, or the object
+     */
+    private Intersectable toNode(int child) {
+        return child < 0 ? objects[~child] : new BVHNode(toNode(left[child]), toNode(right[child]));
+    }
+
+    /**
+     * Copies the box of a child into a bounds array.
+     *
+     * @param child  the child - an inner node or the complement of an object position
+     * @param target the bounds array
+     * @param offset the offset of the box in the array
+     */
+    private void copyChildBox(int child, double[] target, int offset) {
+        if (child < 0) System.arraycopy(leafBounds, ~child * 6, target, offset, 6);
+        else System.arraycopy(nodeBounds, child * 6, target, offset, 6);
+    }
+
+    /**
+     * Expands a box in a bounds array to include the box of a child.
+     *
+     * @param child  the child - an inner node or the complement of an object position
+     * @param target the bounds array
+     * @param offset the offset of the box in the array
+     */
+    private void includeChildBox(int child, double[] target, int offset) {
+        if (child < 0) BinnedSAH.includeBox(target, offset, leafBounds, ~child * 6);
+        else BinnedSAH.includeBox(target, offset, nodeBounds, child * 6);
+    }
+
+    /**
+     * Gets the SAH cost of a child.
+     *
+     * @param child the child - an inner node or the complement of an object position
+     * @return the cost of its subtree, or the area of the object
+     */
+    private double childCost(int child) {
+        return child < 0 ? BinnedSAH.halfArea(leafBounds, ~child * 6) : nodeCosts[child];
+    }
+}
@@ -3,6 +3,7 @@ package geometries;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -89,6 +90,36 @@ public class Plane extends Geometry {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        double t = distanceAlong(ray);
+        if (t <= 0) {
+            // The intersection is behind the ray's origin or on the origin itself
+            return null;
+        }
+
+        return List.of(new GeoPoint(this,ray.getPoint(t)));
+    }
+
+    /**
+     * Finds the intersection between a ray and the plane if it lies within the interval (tMin, tMax).
+     *
+     * @param ray  the ray to intersect with the plane
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the intersection, or null if there is none in the interval
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        double t = distanceAlong(ray);
+        return t > 0 && t > tMin && t < tMax ? new GeoPoint(this, ray.getPoint(t)) : null;
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with the plane.
+     *
+     * @param ray the ray
+     * @return the distance, or 0 if the ray is parallel to the plane or starts on it
+     */
+    double distanceAlong(Ray ray) {
         Point p0 = ray.getP0();
         Vector v = ray.getDir();
 
@@ -96,28 +127,18 @@ public class Plane extends Geometry {
         double denominator = normal.dotProduct(v);
         if (isZero(denominator)) {
             // The ray is parallel to the plane, no intersections
-            return null;
+            return 0;
         }
 
-        // Calculate the numerator of the intersection formula
-        Vector p0ToQ0;
-        try {
-            p0ToQ0 = q0.subtract(p0);
-        } catch (IllegalArgumentException e) {
+        if (q0.equals(p0)) {
             // p0 is the same as q0, the ray starts from the plane
-            return null;
+            return 0;
         }
 
-        double numerator = normal.dotProduct(p0ToQ0);
-
-        double t = alignZero(numerator / denominator);
-
-        if (t <= 0) {
-            // The intersection is behind the ray's origin or on the origin itself
-            return null;
-        }
+        // Calculate the numerator of the intersection formula
+        double numerator = VectorMath.dotDifference(q0, p0, normal);
 
-        return List.of(new GeoPoint(this,ray.getPoint(t)));
+        return alignZero(numerator / denominator);
     }
 
     /**
@@ -130,9 +151,6 @@ public class Plane extends Geometry {
     @Override
     public AABB getBoundingBox() {
         // A plane is infinite, so we return a "infinite" bounding box
-        return new AABB(
-                new Point(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY),
-                new Point(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY)
-        );
+        return AABB.infinite();
     }
 }
\ No newline at end of file
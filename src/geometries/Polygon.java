@@ -113,6 +113,39 @@ public class Polygon extends Geometry {
         if (intersections == null || intersections.isEmpty())
             return null;
 
+        if (!isInside(ray))
+            return null;
+
+        intersections.get(0).geometry = this;
+
+        return intersections;
+    }
+
+    /**
+     * Finds the intersection between a ray and the polygon if it lies within the interval (tMin, tMax).
+     *
+     * @param ray  the ray to intersect with the polygon
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the intersection, or null if there is none in the interval
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        GeoPoint intersection = plane.findClosestGeoIntersection(ray, tMin, tMax);
+        if (intersection == null || !isInside(ray))
+            return null;
+
+        intersection.geometry = this;
+        return intersection;
+    }
+
+    /**
+     * Checks whether the line of a ray passes through the inside of the polygon.
+     *
+     * @param ray the ray
+     * @return true if the ray's line crosses the polygon's plane inside the polygon (not on its edges)
+     */
+    private boolean isInside(Ray ray) {
         Point p0 = ray.getP0(); //the start ray point
         Vector v = ray.getDir();//rays direction
 
@@ -120,7 +153,7 @@ public class Polygon extends Geometry {
         Vector v2 = vertices.get(0).subtract(p0); //vector from the ray start point to the polygon vertices
         double sign = v.dotProduct(v1.crossProduct(v2));
         if (isZero(sign))//out of the polygon
-            return null;
+            return false;
 
         boolean positive = sign > 0;
 
@@ -128,13 +161,11 @@ public class Polygon extends Geometry {
             v1 = v2;
             v2 = vertices.get(i).subtract(p0);//vector from the ray start point to the polygon vertices
             sign = alignZero(v.dotProduct(v1.crossProduct(v2)));
-            if (isZero(sign)) return null; //out of the polygon
-            if (positive != (sign > 0)) return null;//out of the polygon
+            if (isZero(sign)) return false; //out of the polygon
+            if (positive != (sign > 0)) return false;//out of the polygon
         }
 
-        intersections.get(0).geometry = this;
-
-        return intersections;
+        return true;
     }
 
     /**
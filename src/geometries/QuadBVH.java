@@ -0,0 +1,319 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The QuadBVH class is a compiled 4-wide form of a {@link BVHNode} hierarchy.
+ * Every node of the binary hierarchy is collapsed with its descendants into a node with up to four children,
+ * by repeatedly opening the child with the largest box, so the hierarchy is about half as deep.
+ * <p>
+ * The four child boxes of a node are stored as a structure of arrays - 24 consecutive values per node:
+ * the four minimal x coordinates, then the four minimal y coordinates, and so on up to the four maximal
+ * z coordinates. A ray is tested against all four boxes at once by a {@link QuadBoxTest} - with 256-bit SIMD
+ * instructions through the incubating Vector API when the JVM runs with --add-modules jdk.incubator.vector,
+ * or by a scalar loop over the lanes otherwise.
+ * A child is either the index of a node, the complement (~i) of the index of a primitive,
+ * or {@link #EMPTY} for an unused lane, whose box is empty.
+ */
+public class QuadBVH extends Intersectable {
+
+    /**
+     * The number of children of a node.
+     */
+    private static final int WIDTH = 4;
+
+    /**
+     * The child of an unused lane.
+     */
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    /**
+     * The slab test of the four lanes - SIMD if the Vector API is available, scalar otherwise.
+     */
+    static final QuadBoxTest BOX_TEST = QuadBoxTest.select();
+
+    /**
+     * The boxes of the children - 24 values per node, see the class description.
+     */
+    private final double[] boxes;
+
+    /**
+     * The children of the nodes - 4 values per node, see the class description.
+     */
+    private final int[] children;
+
+    /**
+     * The primitives.
+     */
+    private final Intersectable[] primitives;
+
+    /**
+     * The depth of the hierarchy.
+     */
+    private final int depth;
+
+    /**
+     * The bounding box of the whole hierarchy.
+     */
+    private final AABB boundingBox;
+
+    /**
+     * Compiles a BVHNode hierarchy into the 4-wide layout.
+     *
+     * @param tree the root of the hierarchy
+     */
+    public QuadBVH(BVHNode tree) {
+        Compiler compiler = new Compiler(tree.getNodeCount());
+        compiler.compile(tree, 1);
+
+        boxes = Arrays.copyOf(compiler.boxes, compiler.nodeCount * 6 * WIDTH);
+        children = Arrays.copyOf(compiler.children, compiler.nodeCount * WIDTH);
+        primitives = compiler.primitives.toArray(new Intersectable[0]);
+        depth = compiler.depth;
+        boundingBox = tree.getBoundingBox();
+    }
+
+    /**
+     * Helper that collapses the nodes of a BVHNode hierarchy into 4-wide nodes, in depth-first order.
+     */
+    private static class Compiler {
+        private final double[] boxes;
+        private final int[] children;
+        private final List<Intersectable> primitives = new ArrayList<>();
+        private final double[] box = new double[6];
+        private int nodeCount = 0;
+        private int depth = 0;
+
+        /**
+         * Constructs a compiler.
+         *
+         * @param capacity the maximal number of nodes
+         */
+        Compiler(int capacity) {
+            boxes = new double[capacity * 6 * WIDTH];
+            children = new int[capacity * WIDTH];
+        }
+
+        /**
+         * Collapses a binary node with its descendants into a 4-wide node, and compiles its inner children.
+         *
+         * @param node  the binary node
+         * @param level the depth of the node
+         * @return the index of the 4-wide node
+         */
+        int compile(BVHNode node, int level) {
+            depth = Math.max(depth, level);
+            List<Intersectable> items = new ArrayList<>(WIDTH);
+            items.add(node.getLeft());
+            if (node.getRight() != null) items.add(node.getRight());
+            while (items.size() < WIDTH) {
+                int widest = -1;
+                double widestArea = -1;
+                for (int k = 0; k < items.size(); ++k) {
+                    if (!(items.get(k) instanceof BVHNode inner)) continue;
+                    double area = BinnedSAH.halfArea(inner.getBoundingBox());
+                    if (area > widestArea) {
+                        widestArea = area;
+                        widest = k;
+                    }
+                }
+                if (widest < 0) break;
+                BVHNode opened = (BVHNode) items.get(widest);
+                items.set(widest, opened.getLeft());
+                if (opened.getRight() != null) items.add(opened.getRight());
+            }
+
+            int index = nodeCount++;
+            int offset = index * 6 * WIDTH;
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (lane >= items.size()) {
+                    children[index * WIDTH + lane] = EMPTY;
+                    for (int axis = 0; axis < 3; ++axis) {
+                        boxes[offset + axis * WIDTH + lane] = Double.POSITIVE_INFINITY;
+                        boxes[offset + (axis + 3) * WIDTH + lane] = Double.NEGATIVE_INFINITY;
+                    }
+                    continue;
+                }
+                Intersectable item = items.get(lane);
+                item.getBoundingBox().copyTo(box, 0);
+                for (int bound = 0; bound < 6; ++bound)
+                    boxes[offset + bound * WIDTH + lane] = box[bound];
+                if (item instanceof BVHNode inner) {
+                    children[index * WIDTH + lane] = compile(inner, level + 1);
+                } else {
+                    children[index * WIDTH + lane] = ~primitives.size();
+                    primitives.add(item);
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Slab test of a ray against the four child boxes of a node, like {@link AABB#entryDistance(Ray, double, double)}
+     * for every lane, by the box test selected for the running JVM.
+     *
+     * @param node    the node index
+     * @param ray     the ray
+     * @param tMin    the lower bound of the distance
+     * @param tMax    the upper bound of the distance
+     * @param entries the entry distances of the lanes, positive infinity for a missed box
+     */
+    private void entryDistances(int node, Ray ray, double tMin, double tMax, double[] entries) {
+        BOX_TEST.entryDistances(boxes, node * 6 * WIDTH, ray, tMin, tMax, entries);
+    }
+
+    /**
+     * Checks if a ray intersects the bounding box of the hierarchy within an interval.
+     *
+     * @param ray  the ray
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return true if the ray intersects the box within the interval
+     */
+    private boolean intersectsRoot(Ray ray, double tMin, double tMax) {
+        return boundingBox.intersects(ray, tMin, tMax);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        if (!intersectsRoot(ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)) return null;
+        int[] stack = new int[(WIDTH - 1) * depth + 1];
+        double[] entries = new double[WIDTH];
+        int top = 0;
+        stack[top++] = 0;
+
+        List<GeoPoint> intersections = null;
+        while (top > 0) {
+            int node = stack[--top];
+            entryDistances(node, ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, entries);
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (entries[lane] == Double.POSITIVE_INFINITY) continue;
+                int child = children[node * WIDTH + lane];
+                if (child >= 0) {
+                    stack[top++] = child;
+                    continue;
+                }
+                List<GeoPoint> found = primitives[~child].findGeoIntersections(ray);
+                if (found != null) {
+                    if (intersections == null) intersections = new ArrayList<>();
+                    intersections.addAll(found);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection with a front-to-back traversal, like {@link FlatBVH}.
+     * The hit children of a node are sorted by their entry distances and pushed so the nearest is popped first.
+     *
+     * @param ray  the ray to intersect with the geometric objects
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        double rootEntry = boundingBox.entryDistance(ray, tMin, tMax);
+        if (rootEntry == Double.POSITIVE_INFINITY) return null;
+
+        int size = (WIDTH - 1) * depth + 1;
+        int[] stack = new int[size];
+        double[] stackEntries = new double[size];
+        double[] entries = new double[WIDTH];
+        int[] lanes = new int[WIDTH];
+        int top = 0;
+        stack[top] = 0;
+        stackEntries[top++] = rootEntry;
+
+        GeoPoint closest = null;
+        while (top > 0) {
+            int node = stack[--top];
+            if (stackEntries[top] >= tMax) continue;
+            entryDistances(node, ray, tMin, tMax, entries);
+
+            // sort the hit lanes from far to near
+            int hits = 0;
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (entries[lane] == Double.POSITIVE_INFINITY) continue;
+                int k = hits++;
+                while (k > 0 && entries[lanes[k - 1]] < entries[lane]) {
+                    lanes[k] = lanes[k - 1];
+                    --k;
+                }
+                lanes[k] = lane;
+            }
+
+            // primitives are intersected at once, nearest first, and inner children are pushed far to near
+            for (int k = hits - 1; k >= 0; --k) {
+                int child = children[node * WIDTH + lanes[k]];
+                if (child >= 0 || entries[lanes[k]] >= tMax) continue;
+                GeoPoint found = primitives[~child].findClosestGeoIntersection(ray, tMin, tMax);
+                if (found != null) {
+                    closest = found;
+                    tMax = ray.getP0().distance(found.point);
+                }
+            }
+            for (int k = 0; k < hits; ++k) {
+                int child = children[node * WIDTH + lanes[k]];
+                if (child < 0 || entries[lanes[k]] >= tMax) continue;
+                stack[top] = child;
+                stackEntries[top++] = entries[lanes[k]];
+            }
+        }
+        return closest;
+    }
+
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        if (!intersectsRoot(ray, 0, maxDistance)) return ktr;
+        int[] stack = new int[(WIDTH - 1) * depth + 1];
+        double[] entries = new double[WIDTH];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            entryDistances(node, ray, 0, maxDistance, entries);
+            for (int lane = 0; lane < WIDTH; ++lane) {
+                if (entries[lane] == Double.POSITIVE_INFINITY) continue;
+                int child = children[node * WIDTH + lane];
+                if (child >= 0) {
+                    stack[top++] = child;
+                    continue;
+                }
+                ktr = primitives[~child].findTransparency(ray, maxDistance, ktr);
+                if (ktr.equals(Double3.ZERO)) return Double3.ZERO;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Gets the depth of the hierarchy.
+     *
+     * @return the number of nodes on the longest path from the root to a leaf
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of 4-wide nodes.
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+        return children.length / WIDTH;
+    }
+
+    @Override
+    public AABB getBoundingBox() {
+        return boundingBox;
+    }
+}
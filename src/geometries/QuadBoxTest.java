@@ -0,0 +1,53 @@
+package geometries;
+
+import primitives.Ray;
+
+/**
+ * The QuadBoxTest interface is the kernel of {@link QuadBVH} - the slab test of a ray against the four
+ * child boxes of a node, stored in the structure-of-arrays layout described in {@link QuadBVH}.
+ * A scalar implementation is always available; a SIMD implementation on the incubating Vector API
+ * is used when it is on the class path and the jdk.incubator.vector module is present at run time.
+ * <p>
+ * The SIMD implementation lives in the optional simd source root, the only code compiled with
+ * --add-modules jdk.incubator.vector, so the main sources build with a plain javac. To use it, compile simd
+ * against the main classes and run with both on the class path and --add-modules jdk.incubator.vector.
+ */
+interface QuadBoxTest {
+
+    /**
+     * The number of boxes tested at once.
+     */
+    int WIDTH = 4;
+
+    /**
+     * Slab test of a ray against four boxes, like {@link AABB#entryDistance(Ray, double, double)} for every lane.
+     * The sign bits of the ray select the near and far planes for all the lanes at once.
+     *
+     * @param boxes   the boxes array, 24 values per node
+     * @param offset  the offset of the node in the boxes array
+     * @param ray     the ray
+     * @param tMin    the lower bound of the distance
+     * @param tMax    the upper bound of the distance
+     * @param entries the entry distances of the lanes, positive infinity for a missed box
+     */
+    void entryDistances(double[] boxes, int offset, Ray ray, double tMin, double tMax, double[] entries);
+
+    /**
+     * Selects the implementation for the running JVM - the Vector API one if it was compiled,
+     * the jdk.incubator.vector module is resolved (e.g. with --add-modules jdk.incubator.vector) and the hardware
+     * has 256-bit vectors, the scalar one otherwise. The Vector API implementation is loaded by name, so this class never links
+     * against the incubating module when it is absent.
+     *
+     * @return the box test
+     */
+    static QuadBoxTest select() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (QuadBoxTest) Class.forName("geometries.VectorQuadBoxTest").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError ignored) {
+                // fall back to the scalar box test
+            }
+        }
+        return new ScalarQuadBoxTest();
+    }
+}
@@ -0,0 +1,330 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+
+import java.util.Arrays;
+
+/**
+ * The RayPacket class is a bundle of coherent rays - e.g. the primary rays of a block of neighbouring pixels,
+ * or the shadow rays of their intersections toward the same light - traced through a hierarchy together.
+ * A node is fetched once for the whole packet and visited if any ray of the packet hits its box.
+ * <p>
+ * The rays are stored as structure-of-arrays (one array per coordinate of the heads and of the reciprocal
+ * directions), together with the interval of every ray and its result. A query shrinks the interval of a ray
+ * as it finds closer intersections, exactly as the single-ray queries do, so queries can be chained over several
+ * geometries. When all the rays have the same direction signs, the packet also keeps the ranges of its heads and
+ * reciprocal directions, which bound the slab distances of all its rays at once (interval arithmetic),
+ * so a box missed by the whole packet is culled with a single test.
+ */
+public final class RayPacket {
+
+    /**
+     * The rays of the packet.
+     */
+    private final Ray[] rays;
+
+    /**
+     * The coordinates of the heads of the rays.
+     */
+    final double[] ox, oy, oz;
+
+    /**
+     * The coordinates of the reciprocal directions of the rays.
+     */
+    final double[] ix, iy, iz;
+
+    /**
+     * The signs of the directions of the rays (1 if negative, 0 otherwise).
+     */
+    final int[] sx, sy, sz;
+
+    /**
+     * The lower bounds of the distances of the rays.
+     */
+    final double[] tMin;
+
+    /**
+     * The upper bounds of the distances of the rays - the distances of the closest intersections found so far
+     * or the maximal distances of the occlusion queries, negative infinity for a finished occlusion query.
+     */
+    final double[] tMax;
+
+    /**
+     * The closest intersections found so far.
+     */
+    private final GeoPoint[] hits;
+
+    /**
+     * The transparencies accumulated by the occlusion queries.
+     */
+    private final Double3[] transparencies;
+
+    /**
+     * True if all the rays have the same direction signs and finite reciprocal directions,
+     * so the ranges below bound the slab distances of the whole packet.
+     */
+    private final boolean coherent;
+
+    /**
+     * The ranges of the heads of the rays - minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] heads = new double[6];
+
+    /**
+     * The ranges of the reciprocal directions of the rays - minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] invDirs = new double[6];
+
+    /**
+     * The direction signs shared by all the rays of a coherent packet.
+     */
+    private final int[] signs = new int[3];
+
+    /**
+     * The smallest lower bound and the largest initial upper bound of the distances of the rays.
+     * The upper bounds only shrink during the queries, so the initial one stays a valid bound of the packet.
+     */
+    private final double minDistance, maxDistance;
+
+    /**
+     * Constructs a packet for closest intersection queries, with the interval (0, infinity) for every ray.
+     *
+     * @param rays the rays
+     * @throws IllegalArgumentException if there are no rays
+     */
+    public RayPacket(Ray... rays) {
+        this(rays, null);
+    }
+
+    /**
+     * Constructs a packet for occlusion queries, with the interval [0, maxDistances[r]] for every ray r
+     * and an initial transparency of 1.
+     *
+     * @param rays         the rays
+     * @param maxDistances the distances beyond which the intersections of every ray are ignored,
+     *                     null for closest intersection queries
+     * @throws IllegalArgumentException if there are no rays, or if the number of distances differs from the number of rays
+     */
+    public RayPacket(Ray[] rays, double[] maxDistances) {
+        if (rays.length == 0)
+            throw new IllegalArgumentException("A packet must contain at least one ray");
+        if (maxDistances != null && maxDistances.length != rays.length)
+            throw new IllegalArgumentException("Every ray must have a maximal distance");
+
+        int size = rays.length;
+        this.rays = rays;
+        ox = new double[size];
+        oy = new double[size];
+        oz = new double[size];
+        ix = new double[size];
+        iy = new double[size];
+        iz = new double[size];
+        sx = new int[size];
+        sy = new int[size];
+        sz = new int[size];
+        tMin = new double[size];
+        tMax = new double[size];
+        hits = new GeoPoint[size];
+        transparencies = new Double3[size];
+
+        boolean sameSigns = true;
+        for (int r = 0; r < size; ++r) {
+            Ray ray = rays[r];
+            Point p0 = ray.getP0();
+            ox[r] = p0.getX();
+            oy[r] = p0.getY();
+            oz[r] = p0.getZ();
+            ix[r] = ray.getInvDirX();
+            iy[r] = ray.getInvDirY();
+            iz[r] = ray.getInvDirZ();
+            sx[r] = ray.getSignX();
+            sy[r] = ray.getSignY();
+            sz[r] = ray.getSignZ();
+            tMax[r] = maxDistances == null ? Double.POSITIVE_INFINITY : maxDistances[r];
+            transparencies[r] = Double3.ONE;
+            sameSigns &= sx[r] == sx[0] && sy[r] == sy[0] && sz[r] == sz[0]
+                    && Double.isFinite(ix[r]) && Double.isFinite(iy[r]) && Double.isFinite(iz[r]);
+        }
+        coherent = sameSigns;
+        minDistance = 0;
+        maxDistance = maxDistances == null ? Double.POSITIVE_INFINITY : Arrays.stream(maxDistances).max().getAsDouble();
+        if (coherent) {
+            signs[0] = sx[0];
+            signs[1] = sy[0];
+            signs[2] = sz[0];
+            range(ox, heads, 0);
+            range(oy, heads, 1);
+            range(oz, heads, 2);
+            range(ix, invDirs, 0);
+            range(iy, invDirs, 1);
+            range(iz, invDirs, 2);
+        }
+    }
+
+    /**
+     * Stores the range of the values of an array.
+     *
+     * @param values the values
+     * @param ranges the ranges array - the minimum is stored at axis and the maximum at axis + 3
+     * @param axis   the axis of the values
+     */
+    private static void range(double[] values, double[] ranges, int axis) {
+        double min = values[0], max = values[0];
+        for (double value : values) {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        ranges[axis] = min;
+        ranges[axis + 3] = max;
+    }
+
+    /**
+     * Gets the number of rays in the packet.
+     *
+     * @return the number of rays
+     */
+    public int size() {
+        return rays.length;
+    }
+
+    /**
+     * Gets a ray of the packet.
+     *
+     * @param r the index of the ray
+     * @return the ray
+     */
+    public Ray getRay(int r) {
+        return rays[r];
+    }
+
+    /**
+     * Gets the closest intersection found for a ray.
+     *
+     * @param r the index of the ray
+     * @return the closest intersection, or null if none was found
+     */
+    public GeoPoint getHit(int r) {
+        return hits[r];
+    }
+
+    /**
+     * Gets the transparency accumulated along a ray by the occlusion queries.
+     *
+     * @param r the index of the ray
+     * @return the accumulated transparency
+     */
+    public Double3 getTransparency(int r) {
+        return transparencies[r];
+    }
+
+    /**
+     * Checks if all the rays have the same direction signs, so whole boxes can be culled for the packet.
+     *
+     * @return true if the packet is coherent
+     */
+    public boolean isCoherent() {
+        return coherent;
+    }
+
+    /**
+     * Records a closer intersection of a ray and shrinks its interval to it.
+     *
+     * @param r   the index of the ray
+     * @param hit the intersection, ignored if null
+     */
+    void setHit(int r, GeoPoint hit) {
+        if (hit == null) return;
+        hits[r] = hit;
+        tMax[r] = rays[r].getP0().distance(hit.point);
+    }
+
+    /**
+     * Records the transparency accumulated along a ray. An opaque ray is finished - its interval is emptied,
+     * so it misses every box from now on.
+     *
+     * @param r   the index of the ray
+     * @param ktr the accumulated transparency
+     */
+    void setTransparency(int r, Double3 ktr) {
+        transparencies[r] = ktr;
+        if (ktr.equals(Double3.ZERO)) tMax[r] = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Checks if a ray of the packet has finished its occlusion query.
+     *
+     * @param r the index of the ray
+     * @return true if the ray is opaque
+     */
+    boolean isFinished(int r) {
+        return tMax[r] == Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Conservative test of the whole packet against a box stored in a bounds array.
+     * The slab distances of every ray lie in the products of the ranges of the heads and of the reciprocal
+     * directions, so if even the smallest entry distance is beyond the largest exit distance, or outside
+     * the union of the intervals of the rays, no ray of the packet hits the box.
+     * An incoherent packet is never culled.
+     *
+     * @param bounds the bounds array, 6 values per box: minX, minY, minZ, maxX, maxY, maxZ
+     * @param offset the offset of the box in the bounds array
+     * @return true if no ray of the packet hits the box
+     */
+    boolean missesBox(double[] bounds, int offset) {
+        if (!coherent) return false;
+        double entry = Double.NEGATIVE_INFINITY, exit = Double.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; ++axis) {
+            int near = signs[axis] * 3;
+            double minHead = heads[axis], maxHead = heads[axis + 3];
+            double minInv = invDirs[axis], maxInv = invDirs[axis + 3];
+            // near plane - the smallest product of [plane - maxHead, plane - minHead] and [minInv, maxInv]
+            double low = bounds[offset + axis + near] - maxHead, high = bounds[offset + axis + near] - minHead;
+            double t = Math.min(Math.min(low * minInv, low * maxInv), Math.min(high * minInv, high * maxInv));
+            if (t > entry) entry = t;
+            // far plane - the largest product
+            low = bounds[offset + axis + 3 - near] - maxHead;
+            high = bounds[offset + axis + 3 - near] - minHead;
+            t = Math.max(Math.max(low * minInv, low * maxInv), Math.max(high * minInv, high * maxInv));
+            if (t < exit) exit = t;
+        }
+        return entry > exit || exit < minDistance || entry > maxDistance;
+    }
+
+    /**
+     * Slab test of a single ray of the packet against a box stored in a bounds array,
+     * within the current interval of the ray - like {@link AABB#entryDistance(Ray, double, double)},
+     * reading the ray from the packet's arrays.
+     *
+     * @param bounds the bounds array, 6 values per box: minX, minY, minZ, maxX, maxY, maxZ
+     * @param offset the offset of the box in the bounds array
+     * @param r      the index of the ray
+     * @return the entry distance, or positive infinity if the ray misses the box within its interval
+     */
+    double entryDistance(double[] bounds, int offset, int r) {
+        double near = tMin[r], far = tMax[r];
+
+        int sign = sx[r] * 3;
+        double t0 = (bounds[offset + sign] - ox[r]) * ix[r];
+        double t1 = (bounds[offset + 3 - sign] - ox[r]) * ix[r];
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+
+        sign = sy[r] * 3;
+        t0 = (bounds[offset + 1 + sign] - oy[r]) * iy[r];
+        t1 = (bounds[offset + 4 - sign] - oy[r]) * iy[r];
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+
+        sign = sz[r] * 3;
+        t0 = (bounds[offset + 2 + sign] - oz[r]) * iz[r];
+        t1 = (bounds[offset + 5 - sign] - oz[r]) * iz[r];
+        if (t0 > near) near = t0;
+        if (t1 < far) far = t1;
+
+        return near <= far ? near : Double.POSITIVE_INFINITY;
+    }
+}
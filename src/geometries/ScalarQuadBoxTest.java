@@ -0,0 +1,38 @@
+package geometries;
+
+import primitives.Point;
+import primitives.Ray;
+
+/**
+ * The ScalarQuadBoxTest class is the portable {@link QuadBoxTest} - one loop over the four lanes
+ * with the same operations in every lane.
+ */
+final class ScalarQuadBoxTest implements QuadBoxTest {
+
+    @Override
+    public void entryDistances(double[] boxes, int offset, Ray ray, double tMin, double tMax, double[] entries) {
+        Point p0 = ray.getP0();
+        double ox = p0.getX(), oy = p0.getY(), oz = p0.getZ();
+        double ix = ray.getInvDirX(), iy = ray.getInvDirY(), iz = ray.getInvDirZ();
+        int nearX = offset + ray.getSignX() * 3 * WIDTH, farX = offset + (1 - ray.getSignX()) * 3 * WIDTH;
+        int nearY = offset + (1 + ray.getSignY() * 3) * WIDTH, farY = offset + (4 - ray.getSignY() * 3) * WIDTH;
+        int nearZ = offset + (2 + ray.getSignZ() * 3) * WIDTH, farZ = offset + (5 - ray.getSignZ() * 3) * WIDTH;
+
+        for (int lane = 0; lane < WIDTH; ++lane) {
+            double near = tMin, far = tMax;
+            double t0 = (boxes[nearX + lane] - ox) * ix;
+            double t1 = (boxes[farX + lane] - ox) * ix;
+            if (t0 > near) near = t0;
+            if (t1 < far) far = t1;
+            t0 = (boxes[nearY + lane] - oy) * iy;
+            t1 = (boxes[farY + lane] - oy) * iy;
+            if (t0 > near) near = t0;
+            if (t1 < far) far = t1;
+            t0 = (boxes[nearZ + lane] - oz) * iz;
+            t1 = (boxes[farZ + lane] - oz) * iz;
+            if (t0 > near) near = t0;
+            if (t1 < far) far = t1;
+            entries[lane] = near <= far ? near : Double.POSITIVE_INFINITY;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package geometries;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
+import primitives.VectorMath;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -53,18 +54,15 @@ public class Sphere extends RadialGeometry {
         Point p0 = ray.getP0();
         Vector v = ray.getDir();
 
-        Vector u;
-        try {
-            u = center.subtract(p0); // Vector from ray's origin to the sphere's center
-        } catch (IllegalArgumentException e) {
+        if (center.equals(p0)) {
             // If p0 is the center of the sphere, return the point on the surface in the ray's direction
             List<GeoPoint> intersections = new ArrayList<>();
-            intersections.add(new GeoPoint(this,p0.add(v.scale(radius))));
+            intersections.add(new GeoPoint(this, ray.getPoint(radius)));
             return intersections;
         }
 
-        double tm = alignZero(v.dotProduct(u)); // Projection of u on v
-        double dSquared = alignZero(u.lengthSquared() - tm * tm); // Distance squared from the sphere's center to the ray
+        double tm = alignZero(VectorMath.dotDifference(center, p0, v)); // Projection on v of u - the vector from the ray's origin to the center
+        double dSquared = alignZero(center.distanceSquared(p0) - tm * tm); // Distance squared from the sphere's center to the ray
         double rSquared = alignZero(radius * radius); // Sphere's radius squared
 
         if (dSquared >= rSquared) {
@@ -87,6 +85,44 @@ public class Sphere extends RadialGeometry {
         return intersections.isEmpty() ? null : intersections; // Return null if no valid intersections
     }
 
+    /**
+     * Finds the closest intersection between a ray and the sphere within the interval (tMin, tMax).
+     *
+     * @param ray  the ray to intersect with the sphere
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        Point p0 = ray.getP0();
+        Vector v = ray.getDir();
+
+        if (center.equals(p0)) {
+            // p0 is the center of the sphere - the only intersection is at distance radius
+            return radius > tMin && radius < tMax ? new GeoPoint(this, ray.getPoint(radius)) : null;
+        }
+
+        double tm = alignZero(VectorMath.dotDifference(center, p0, v)); // Projection on v of u - the vector from the ray's origin to the center
+        double dSquared = alignZero(center.distanceSquared(p0) - tm * tm); // Distance squared from the sphere's center to the ray
+        double rSquared = alignZero(radius * radius); // Sphere's radius squared
+
+        if (dSquared >= rSquared) {
+            return null; // No intersections if the distance is greater than the sphere's radius
+        }
+
+        double th = alignZero(Math.sqrt(rSquared - dSquared)); // Distance from the intersection points to tm
+        double t1 = alignZero(tm - th); // Distance to the first (nearer) intersection point
+        if (t1 > 0 && t1 > tMin && t1 < tMax) {
+            return new GeoPoint(this, ray.getPoint(t1));
+        }
+        double t2 = alignZero(tm + th); // Distance to the second intersection point
+        if (t2 > 0 && t2 > tMin && t2 < tMax) {
+            return new GeoPoint(this, ray.getPoint(t2));
+        }
+        return null;
+    }
+
     /**
      * Returns the bounding box of the sphere.
      *
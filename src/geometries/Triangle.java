@@ -4,10 +4,10 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
 
 /**
  * The Triangle class represents a triangle in 3D space.
@@ -15,8 +15,24 @@ import static primitives.Util.alignZero;
  */
 public class Triangle extends Polygon {
 
+    /**
+     * The first vertex of the triangle.
+     */
+    private final double x0, y0, z0;
+
+    /**
+     * The first edge of the triangle - from the first vertex to the second one.
+     */
+    private final double e1x, e1y, e1z;
+
+    /**
+     * The second edge of the triangle - from the first vertex to the third one.
+     */
+    private final double e2x, e2y, e2z;
+
     /**
      * Constructs a Triangle with the specified vertices.
+     * The edges used by the intersection test are calculated once, here.
      *
      * @param p1 the first vertex of the triangle
      * @param p2 the second vertex of the triangle
@@ -24,6 +40,15 @@ public class Triangle extends Polygon {
      */
     public Triangle(Point p1, Point p2, Point p3) {
         super(p1, p2, p3);
+        x0 = p1.getX();
+        y0 = p1.getY();
+        z0 = p1.getZ();
+        e1x = p2.getX() - x0;
+        e1y = p2.getY() - y0;
+        e1z = p2.getZ() - z0;
+        e2x = p3.getX() - x0;
+        e2y = p3.getY() - y0;
+        e2z = p3.getZ() - z0;
     }
 
     /**
@@ -34,40 +59,81 @@ public class Triangle extends Polygon {
      */
     @Override
     public List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
-        // First, find the intersection with the plane of the triangle
-        Plane plane = new Plane(vertices.get(0), vertices.get(1), vertices.get(2));
-        List<Point> planeIntersections = plane.findIntersections(ray);
+        double t = distanceAlong(ray);
+        return t > 0 ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+    }
 
-        if (planeIntersections == null) {
-            return null;
-        }
+    /**
+     * Finds the intersection between a ray and the triangle if it lies within the interval (tMin, tMax).
+     *
+     * @param ray  the ray to intersect with the triangle
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the intersection, or null if there is none in the interval
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        double t = distanceAlong(ray);
+        return t > 0 && t > tMin && t < tMax ? new GeoPoint(this, ray.getPoint(t)) : null;
+    }
 
+    /**
+     * Calculates the distance along a ray to its intersection with the triangle.
+     *
+     * @param ray the ray
+     * @return the distance, or 0 if the ray misses the triangle, is parallel to it or starts on it
+     * @see #distanceAlong(Ray, double, double, double, double, double, double, double, double, double)
+     */
+    double distanceAlong(Ray ray) {
+        return distanceAlong(ray, x0, y0, z0, e1x, e1y, e1z, e2x, e2y, e2z);
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with a triangle, by the Moller-Trumbore algorithm.
+     * The ray is solved for the distance and the barycentric coordinates (u, v) of the intersection directly,
+     * from the edges, without building the plane of the triangle.
+     * Intersections on the edges and the vertices are not counted.
+     *
+     * @param ray the ray
+     * @param x0  the x coordinate of the first vertex
+     * @param y0  the y coordinate of the first vertex
+     * @param z0  the z coordinate of the first vertex
+     * @param e1x the x coordinate of the edge from the first vertex to the second one
+     * @param e1y the y coordinate of the edge from the first vertex to the second one
+     * @param e1z the z coordinate of the edge from the first vertex to the second one
+     * @param e2x the x coordinate of the edge from the first vertex to the third one
+     * @param e2y the y coordinate of the edge from the first vertex to the third one
+     * @param e2z the z coordinate of the edge from the first vertex to the third one
+     * @return the distance, or 0 if the ray misses the triangle, is parallel to it or starts on it
+     */
+    static double distanceAlong(Ray ray, double x0, double y0, double z0,
+                                double e1x, double e1y, double e1z, double e2x, double e2y, double e2z) {
+        Vector dir = ray.getDir();
+        double dx = dir.getX(), dy = dir.getY(), dz = dir.getZ();
+
+        // p = dir x e2
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+        if (isZero(det)) return 0; // the ray is parallel to the triangle
+        double invDet = 1 / det;
+
+        // s = p0 - v0
         Point p0 = ray.getP0();
-        Vector v = ray.getDir();
-        Point p = planeIntersections.get(0);
-
-        // Vectors from p0 to vertices
-        Vector v1 = vertices.get(0).subtract(p0);
-        Vector v2 = vertices.get(1).subtract(p0);
-        Vector v3 = vertices.get(2).subtract(p0);
-
-        // Check if the point is inside the triangle using cross product
-        Vector n1 = v1.crossProduct(v2).normalize();
-        Vector n2 = v2.crossProduct(v3).normalize();
-        Vector n3 = v3.crossProduct(v1).normalize();
-
-        double sign1 = alignZero(v.dotProduct(n1));
-        double sign2 = alignZero(v.dotProduct(n2));
-        double sign3 = alignZero(v.dotProduct(n3));
-
-        // Check if the point is inside the triangle
-        if ((sign1 > 0 && sign2 > 0 && sign3 > 0) || (sign1 < 0 && sign2 < 0 && sign3 < 0)) {
-            List<GeoPoint> intersections = new ArrayList<>();
-            intersections.add(new GeoPoint(this,p));
-            return intersections;
-        }
-
-        return null;
+        double sx = p0.getX() - x0, sy = p0.getY() - y0, sz = p0.getZ() - z0;
+        double u = alignZero((sx * px + sy * py + sz * pz) * invDet);
+        if (u <= 0 || u >= 1) return 0;
+
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = alignZero((dx * qx + dy * qy + dz * qz) * invDet);
+        if (v <= 0 || alignZero(1 - u - v) <= 0) return 0;
+
+        double t = alignZero((e2x * qx + e2y * qy + e2z * qz) * invDet);
+        return t > 0 ? t : 0;
     }
 
     /**
@@ -0,0 +1,585 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+import static primitives.Util.alignZero;
+
+/**
+ * The TriangleMesh class represents a mesh of triangles sharing their vertices.
+ * The vertex positions are kept in a flat array (3 values per vertex) and the faces in an index buffer
+ * (3 vertex indices per face), so a face costs 12 bytes instead of a whole {@link Triangle} object.
+ * The mesh has a single material and emission, and is intersected through its own bounding volume
+ * hierarchy over the faces, so it is added to {@link Geometries} as a single intersectable.
+ * The mesh itself is not a {@link Geometry} - its normal is defined per face, so an intersection reports
+ * a light {@link Face} view of the intersected face as its geometry, carrying the material and emission of the mesh.
+ */
+public class TriangleMesh extends Intersectable {
+
+    /**
+     * The maximal number of faces in a leaf of the hierarchy.
+     */
+    private static final int LEAF_SIZE = 4;
+
+    /**
+     * The vertex positions - 3 values per vertex: x, y, z.
+     */
+    private final double[] positions;
+
+    /**
+     * The index buffer - 3 vertex indices per face, reordered so the faces of every leaf are consecutive.
+     */
+    private final int[] indices;
+
+    /**
+     * The bounds of the hierarchy nodes - 6 values per node: minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private final double[] nodeBounds;
+
+    /**
+     * The links of the hierarchy nodes - 2 values per node, in the layout of {@link FlatBVH}:
+     * an inner node keeps the index of its second child and 0 (its first child follows it),
+     * a leaf keeps the index of its first face and the number of its faces.
+     */
+    private final int[] nodeLinks;
+
+    /**
+     * The depth of the hierarchy - the size of the traversal stack.
+     */
+    private final int depth;
+
+    /**
+     * The bounding box of the mesh.
+     */
+    private final AABB boundingBox;
+
+    /**
+     * The emission color of the faces.
+     */
+    private Color emission = Color.BLACK;
+
+    /**
+     * The material of the faces.
+     */
+    private Material material = new Material();
+
+    /**
+     * Constructs a triangle mesh and builds its hierarchy.
+     * The arrays are used by the mesh and must not be changed afterwards.
+     *
+     * @param positions the vertex positions, 3 values per vertex
+     * @param indices   the index buffer, 3 vertex indices per face, in the order of the vertices of the face
+     * @throws IllegalArgumentException if there are no faces, the arrays are not made of triples,
+     *                                  or an index is out of the range of the vertices
+     */
+    public TriangleMesh(double[] positions, int[] indices) {
+        this(positions, indices, true);
+    }
+
+    /**
+     * Constructs a triangle mesh and builds its hierarchy, in parallel or sequentially.
+     * Both builds produce the same hierarchy.
+     *
+     * @param positions the vertex positions, 3 values per vertex
+     * @param indices   the index buffer, 3 vertex indices per face, in the order of the vertices of the face
+     * @param parallel  whether the subtrees of large groups of faces are built in parallel
+     * @throws IllegalArgumentException if there are no faces, the arrays are not made of triples,
+     *                                  or an index is out of the range of the vertices
+     */
+    TriangleMesh(double[] positions, int[] indices, boolean parallel) {
+        if (positions.length % 3 != 0 || indices.length % 3 != 0)
+            throw new IllegalArgumentException("Positions and indices must come in triples");
+        if (indices.length == 0)
+            throw new IllegalArgumentException("A mesh must have at least one face");
+        int vertexCount = positions.length / 3;
+        for (int index : indices)
+            if (index < 0 || index >= vertexCount)
+                throw new IllegalArgumentException("Vertex index out of range: " + index);
+
+        this.positions = positions;
+        int faceCount = indices.length / 3;
+
+        double[] faceBounds = new double[faceCount * 6];
+        for (int f = 0; f < faceCount; ++f)
+            faceBounds(indices, f, faceBounds, f * 6);
+
+        BinnedSAH sah = new BinnedSAH(faceBounds, parallel);
+        Builder builder = new BuildTask(faceBounds, sah, 0, faceCount).invoke();
+
+        // reorder the faces by the order of the leaves
+        this.indices = new int[indices.length];
+        for (int f = 0; f < faceCount; ++f)
+            System.arraycopy(indices, sah.order[f] * 3, this.indices, f * 3, 3);
+
+        nodeBounds = Arrays.copyOf(builder.bounds, builder.nodeCount * 6);
+        nodeLinks = Arrays.copyOf(builder.links, builder.nodeCount * 2);
+        depth = builder.depth;
+        boundingBox = new AABB(new Point(nodeBounds[0], nodeBounds[1], nodeBounds[2]),
+                new Point(nodeBounds[3], nodeBounds[4], nodeBounds[5]));
+    }
+
+    /**
+     * Calculates the bounds of a face into a bounds array.
+     *
+     * @param indices the index buffer
+     * @param face    the face index
+     * @param bounds  the bounds array
+     * @param offset  the offset of the bounds in the array
+     */
+    private void faceBounds(int[] indices, int face, double[] bounds, int offset) {
+        for (int axis = 0; axis < 3; ++axis) {
+            double a = positions[indices[face * 3] * 3 + axis];
+            double b = positions[indices[face * 3 + 1] * 3 + axis];
+            double c = positions[indices[face * 3 + 2] * 3 + axis];
+            bounds[offset + axis] = Math.min(a, Math.min(b, c));
+            bounds[offset + 3 + axis] = Math.max(a, Math.max(b, c));
+        }
+    }
+
+    /**
+     * Helper that builds the hierarchy over a range of the faces with the binned SAH splitter, in depth-first order.
+     * Node indices are relative to the root of the range, so the hierarchies of two ranges built separately
+     * can be joined under a common root.
+     */
+    private static class Builder {
+        private final double[] faceBounds;
+        private final BinnedSAH sah;
+        private final double[] bounds;
+        private final int[] links;
+        private int nodeCount = 0;
+        private int depth = 0;
+
+        /**
+         * Constructs a builder.
+         *
+         * @param faceBounds the bounds of the faces, 6 values per face
+         * @param sah        the SAH splitter over the faces
+         * @param capacity   the maximal number of nodes
+         */
+        Builder(double[] faceBounds, BinnedSAH sah, int capacity) {
+            this.faceBounds = faceBounds;
+            this.sah = sah;
+            bounds = new double[capacity * 6];
+            links = new int[capacity * 2];
+        }
+
+        /**
+         * Builds the node over a range of the faces, in the order kept by the SAH splitter.
+         *
+         * @param begin the first index of the range (inclusive)
+         * @param end   the last index of the range (exclusive)
+         * @param level the depth of the node
+         */
+        void build(int begin, int end, int level) {
+            depth = Math.max(depth, level);
+            int index = nodeCount++;
+
+            int offset = index * 6;
+            for (int axis = 0; axis < 3; ++axis) {
+                bounds[offset + axis] = Double.POSITIVE_INFINITY;
+                bounds[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+            }
+            for (int i = begin; i < end; ++i) {
+                int face = sah.order[i] * 6;
+                for (int axis = 0; axis < 3; ++axis) {
+                    bounds[offset + axis] = Math.min(bounds[offset + axis], faceBounds[face + axis]);
+                    bounds[offset + 3 + axis] = Math.max(bounds[offset + 3 + axis], faceBounds[face + 3 + axis]);
+                }
+            }
+
+            if (end - begin <= LEAF_SIZE) {
+                links[index * 2] = begin;
+                links[index * 2 + 1] = end - begin;
+                return;
+            }
+
+            int mid = sah.split(begin, end);
+            build(begin, mid, level + 1);
+            links[index * 2] = nodeCount;
+            links[index * 2 + 1] = 0;
+            build(mid, end, level + 1);
+        }
+
+        /**
+         * Joins the hierarchies of two adjacent ranges under a new root, laid out as a sequential build would:
+         * the root, then the first hierarchy, then the second one.
+         *
+         * @param first  the hierarchy of the first range
+         * @param second the hierarchy of the second range
+         * @return the joined hierarchy
+         */
+        static Builder join(Builder first, Builder second) {
+            Builder joined = new Builder(first.faceBounds, first.sah, 1 + first.nodeCount + second.nodeCount);
+            joined.nodeCount = 1;
+            for (int axis = 0; axis < 3; ++axis) {
+                joined.bounds[axis] = Math.min(first.bounds[axis], second.bounds[axis]);
+                joined.bounds[axis + 3] = Math.max(first.bounds[axis + 3], second.bounds[axis + 3]);
+            }
+            joined.append(first);
+            joined.links[0] = joined.nodeCount;
+            joined.links[1] = 0;
+            joined.append(second);
+            joined.depth = 1 + Math.max(first.depth, second.depth);
+            return joined;
+        }
+
+        /**
+         * Appends the nodes of another hierarchy, shifting the links of its inner nodes by their new position.
+         *
+         * @param other the hierarchy to append
+         */
+        private void append(Builder other) {
+            int shift = nodeCount;
+            System.arraycopy(other.bounds, 0, bounds, shift * 6, other.nodeCount * 6);
+            System.arraycopy(other.links, 0, links, shift * 2, other.nodeCount * 2);
+            for (int index = shift, end = shift + other.nodeCount; index < end; ++index)
+                if (links[index * 2 + 1] == 0) links[index * 2] += shift;
+            nodeCount += other.nodeCount;
+        }
+    }
+
+    /**
+     * Task that builds the hierarchy over a range of the faces, building the two subtrees of a large range
+     * in parallel and joining them. Small ranges are built sequentially by a single {@link Builder}.
+     */
+    private static class BuildTask extends RecursiveTask<Builder> {
+        private static final long serialVersionUID = 1L;
+        private final double[] faceBounds;
+        private final BinnedSAH sah;
+        private final int begin;
+        private final int end;
+
+        /**
+         * Constructs a task.
+         *
+         * @param faceBounds the bounds of the faces, 6 values per face
+         * @param sah        the SAH splitter over the faces
+         * @param begin      the first index of the range (inclusive)
+         * @param end        the last index of the range (exclusive)
+         */
+        BuildTask(double[] faceBounds, BinnedSAH sah, int begin, int end) {
+            this.faceBounds = faceBounds;
+            this.sah = sah;
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected Builder compute() {
+            if (!sah.parallel || end - begin < BinnedSAH.FORK_THRESHOLD) {
+                Builder builder = new Builder(faceBounds, sah, 2 * (end - begin));
+                builder.build(begin, end, 1);
+                return builder;
+            }
+            // the splits of the two ranges touch disjoint parts of the order, so they can run concurrently
+            int mid = sah.split(begin, end);
+            BuildTask first = new BuildTask(faceBounds, sah, begin, mid);
+            first.fork();
+            Builder second = new BuildTask(faceBounds, sah, mid, end).compute();
+            return Builder.join(first.join(), second);
+        }
+    }
+
+    /**
+     * Calculates the distance along a ray to its intersection with a face.
+     *
+     * @param ray  the ray
+     * @param face the face index
+     * @return the distance, or 0 if the ray misses the face
+     */
+    private double distanceToFace(Ray ray, int face) {
+        int a = indices[face * 3] * 3;
+        int b = indices[face * 3 + 1] * 3;
+        int c = indices[face * 3 + 2] * 3;
+        double x0 = positions[a], y0 = positions[a + 1], z0 = positions[a + 2];
+        return Triangle.distanceAlong(ray, x0, y0, z0,
+                positions[b] - x0, positions[b + 1] - y0, positions[b + 2] - z0,
+                positions[c] - x0, positions[c + 1] - y0, positions[c + 2] - z0);
+    }
+
+    @Override
+    protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        List<GeoPoint> intersections = null;
+        while (top > 0) {
+            int index = stack[--top];
+            if (AABB.entryDistance(nodeBounds, index * 6, ray, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY)
+                    == Double.POSITIVE_INFINITY) continue;
+
+            int count = nodeLinks[index * 2 + 1];
+            if (count == 0) {
+                stack[top++] = nodeLinks[index * 2];
+                stack[top++] = index + 1;
+                continue;
+            }
+            for (int face = nodeLinks[index * 2], end = face + count; face < end; ++face) {
+                double t = distanceToFace(ray, face);
+                if (t > 0) {
+                    if (intersections == null) intersections = new ArrayList<>();
+                    intersections.add(new GeoPoint(new Face(this, face), ray.getPoint(t)));
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * Finds the closest intersection with a front-to-back traversal of the hierarchy, like {@link FlatBVH}.
+     * The face view of the intersection is created once, for the closest face only.
+     *
+     * @param ray  the ray to intersect with the mesh
+     * @param tMin the lower bound of the distance
+     * @param tMax the upper bound of the distance
+     * @return the closest intersection in the interval, or null if there is none
+     */
+    @Override
+    protected GeoPoint findClosestGeoIntersectionHelper(Ray ray, double tMin, double tMax) {
+        double rootEntry = AABB.entryDistance(nodeBounds, 0, ray, tMin, tMax);
+        if (rootEntry == Double.POSITIVE_INFINITY) return null;
+
+        int[] stack = new int[depth + 1];
+        double[] entries = new double[depth + 1];
+        int top = 0;
+        stack[top] = 0;
+        entries[top++] = rootEntry;
+
+        int closestFace = -1;
+        while (top > 0) {
+            int index = stack[--top];
+            if (entries[top] >= tMax) continue;
+
+            int count = nodeLinks[index * 2 + 1];
+            if (count == 0) {
+                int near = index + 1;
+                int far = nodeLinks[index * 2];
+                double nearEntry = AABB.entryDistance(nodeBounds, near * 6, ray, tMin, tMax);
+                double farEntry = AABB.entryDistance(nodeBounds, far * 6, ray, tMin, tMax);
+                if (farEntry < nearEntry) {
+                    int temp = near;
+                    near = far;
+                    far = temp;
+                    double entry = nearEntry;
+                    nearEntry = farEntry;
+                    farEntry = entry;
+                }
+                if (farEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = far;
+                    entries[top++] = farEntry;
+                }
+                if (nearEntry != Double.POSITIVE_INFINITY) {
+                    stack[top] = near;
+                    entries[top++] = nearEntry;
+                }
+                continue;
+            }
+            for (int face = nodeLinks[index * 2], end = face + count; face < end; ++face) {
+                double t = distanceToFace(ray, face);
+                if (t > 0 && t > tMin && t < tMax) {
+                    closestFace = face;
+                    tMax = t;
+                }
+            }
+        }
+        return closestFace < 0 ? null : new GeoPoint(new Face(this, closestFace), ray.getPoint(tMax));
+    }
+
+    /**
+     * Occlusion query over the faces - every face before the maximal distance multiplies the transparency
+     * by the transparency of the mesh's material.
+     *
+     * @param ray         the ray to intersect with the mesh
+     * @param maxDistance the distance beyond which intersections are ignored
+     * @param ktr         the transparency accumulated so far
+     * @return the accumulated transparency
+     */
+    @Override
+    protected Double3 findTransparencyHelper(Ray ray, double maxDistance, Double3 ktr) {
+        Double3 kT = material.kT;
+        int[] stack = new int[depth + 1];
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int index = stack[--top];
+            if (AABB.entryDistance(nodeBounds, index * 6, ray, 0, maxDistance) == Double.POSITIVE_INFINITY) continue;
+
+            int count = nodeLinks[index * 2 + 1];
+            if (count == 0) {
+                stack[top++] = nodeLinks[index * 2];
+                stack[top++] = index + 1;
+                continue;
+            }
+            for (int face = nodeLinks[index * 2], end = face + count; face < end; ++face) {
+                double t = distanceToFace(ray, face);
+                if (t > 0 && alignZero(t - maxDistance) <= 0) {
+                    ktr = ktr.product(kT);
+                    if (ktr.equals(Double3.ZERO)) return Double3.ZERO;
+                }
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * Gets the emission color of the faces.
+     *
+     * @return the emission color
+     */
+    public Color getEmission() {
+        return emission;
+    }
+
+    /**
+     * Gets the material of the faces.
+     *
+     * @return the material
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * Sets the emission color of the faces.
+     *
+     * @param emission the emission color to set
+     * @return the current mesh (for chaining)
+     */
+    public TriangleMesh setEmission(Color emission) {
+        this.emission = emission;
+        return this;
+    }
+
+    /**
+     * Sets the material of the faces.
+     *
+     * @param material the material to set
+     * @return the current mesh (for chaining)
+     */
+    public TriangleMesh setMaterial(Material material) {
+        this.material = material;
+        return this;
+    }
+
+    /**
+     * Gets the number of faces of the mesh.
+     *
+     * @return the number of faces
+     */
+    public int getFaceCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Gets the number of vertices of the mesh.
+     *
+     * @return the number of vertices
+     */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    @Override
+    public AABB getBoundingBox() {
+        return boundingBox;
+    }
+
+    /**
+     * A face of a mesh, reported as the geometry of the intersections with the mesh.
+     * It is created per intersection and keeps only its mesh, its index and its normal -
+     * the material and the emission are those of the mesh.
+     */
+    public static final class Face extends Geometry {
+        /**
+         * The mesh of the face.
+         */
+        private final TriangleMesh mesh;
+
+        /**
+         * The index of the face in the mesh.
+         */
+        private final int index;
+
+        /**
+         * The normal of the face - by the order of its vertices, like the normal of a {@link Triangle}.
+         */
+        private final Vector normal;
+
+        /**
+         * Constructs the face view of a face of a mesh.
+         *
+         * @param mesh  the mesh
+         * @param index the index of the face in the mesh
+         */
+        private Face(TriangleMesh mesh, int index) {
+            this.mesh = mesh;
+            this.index = index;
+            Point a = mesh.vertex(index, 0);
+            normal = mesh.vertex(index, 1).subtract(a).crossProduct(mesh.vertex(index, 2).subtract(a)).normalize();
+        }
+
+        /**
+         * Gets the mesh of the face.
+         *
+         * @return the mesh
+         */
+        public TriangleMesh getMesh() {
+            return mesh;
+        }
+
+        /**
+         * Gets the index of the face in its mesh.
+         *
+         * @return the face index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        @Override
+        public Color getEmission() {
+            return mesh.getEmission();
+        }
+
+        @Override
+        public Material getMaterial() {
+            return mesh.getMaterial();
+        }
+
+        @Override
+        public Vector getNormal(Point point) {
+            return normal;
+        }
+
+        @Override
+        protected List<GeoPoint> findGeoIntersectionsHelper(Ray ray) {
+            double t = mesh.distanceToFace(ray, index);
+            return t > 0 ? List.of(new GeoPoint(this, ray.getPoint(t))) : null;
+        }
+
+        @Override
+        public AABB getBoundingBox() {
+            double[] bounds = new double[6];
+            mesh.faceBounds(mesh.indices, index, bounds, 0);
+            return new AABB(new Point(bounds[0], bounds[1], bounds[2]), new Point(bounds[3], bounds[4], bounds[5]));
+        }
+    }
+
+    /**
+     * Gets a vertex of a face.
+     *
+     * @param face   the face index
+     * @param corner the corner of the face - 0, 1 or 2
+     * @return the position of the vertex
+     */
+    private Point vertex(int face, int corner) {
+        int v = indices[face * 3 + corner] * 3;
+        return new Point(positions[v], positions[v + 1], positions[v + 2]);
+    }
+}
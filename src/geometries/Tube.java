@@ -74,11 +74,12 @@ public class Tube extends RadialGeometry {
 
     /**
      * Returns the bounding box of the tube.
+     * Since a tube is infinite along its axis, this method returns an "infinite" bounding box.
      *
      * @return the bounding box of the tube
      */
     @Override
     public AABB getBoundingBox() {
-        return new AABB(new Point(0, 0, 0), new Point(1, 1, 1)); // קופסה פשוטה כדוגמה
+        return AABB.infinite();
     }
 }
\ No newline at end of file
@@ -82,6 +82,33 @@ public class Color {
         rgb = new Double3(other.getRed(), other.getGreen(), other.getBlue());
     }
 
+    /**
+     * Red component getter
+     *
+     * @return the red component, not clamped
+     */
+    public double getRed() {
+        return rgb.d1;
+    }
+
+    /**
+     * Green component getter
+     *
+     * @return the green component, not clamped
+     */
+    public double getGreen() {
+        return rgb.d2;
+    }
+
+    /**
+     * Blue component getter
+     *
+     * @return the blue component, not clamped
+     */
+    public double getBlue() {
+        return rgb.d3;
+    }
+
     /**
      * Color getter - returns the color after converting it into java.awt.Color
      * object During the conversion any component bigger than 255 is set to 255
@@ -147,6 +174,17 @@ public class Color {
         return new Color(rgb.reduce(k));
     }
 
+    /**
+     * Calculates the difference between this color and another color - the largest difference of their components
+     *
+     * @param other the other color
+     * @return the largest absolute difference of the rgb components
+     */
+    public double difference(Color other) {
+        return Math.max(Math.abs(rgb.d1 - other.rgb.d1),
+                Math.max(Math.abs(rgb.d2 - other.rgb.d2), Math.abs(rgb.d3 - other.rgb.d3)));
+    }
+
     /**
      * Returns a string representation of the Color.
      *
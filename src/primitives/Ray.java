@@ -22,16 +22,33 @@ public class Ray {
      */
     private final Vector direction;
 
+    /**
+     * The reciprocal of the direction coordinates, cached for the slab tests against bounding boxes.
+     * A zero coordinate gives an infinite reciprocal.
+     */
+    private final double invDirX, invDirY, invDirZ;
+
+    /**
+     * The sign bits of the direction coordinates - 1 if the reciprocal coordinate is negative, 0 otherwise.
+     */
+    private final int signX, signY, signZ;
+
     /**
      * Constructs a Ray with a specified origin point and direction vector.
-     * The direction vector is normalized.
+     * The direction vector is normalized, unless it is already a unit vector.
      *
      * @param head      the origin point of the ray
      * @param direction the direction vector of the ray
      */
     public Ray(Point head, Vector direction) {
         this.head = head;
-        this.direction = direction.normalize();
+        this.direction = isZero(direction.lengthSquared() - 1) ? direction : direction.normalize();
+        invDirX = 1 / this.direction.xyz.d1;
+        invDirY = 1 / this.direction.xyz.d2;
+        invDirZ = 1 / this.direction.xyz.d3;
+        signX = invDirX < 0 ? 1 : 0;
+        signY = invDirY < 0 ? 1 : 0;
+        signZ = invDirZ < 0 ? 1 : 0;
     }
 
     /**
@@ -43,23 +60,7 @@ public class Ray {
      * @param normal    the normal vector
      */
     public Ray(Point point, Vector direction, Vector normal) {
-        double nv = normal.dotProduct(direction);
-        Vector delta = normal.scale(nv > 0 ? DELTA : -DELTA);
-        this.head = point.add(delta);
-        this.direction = direction.normalize();
-    }
-
-    /**
-     * Creates a new Ray with an offset from the current ray.
-     *
-     * @param offsetX the offset in the x direction
-     * @param offsetY the offset in the y direction
-     * @return a new Ray with the specified offsets
-     */
-    public Ray createWithOffset(double offsetX, double offsetY) {
-        // Calculate the offset point
-        Point newHead = new Point(head.xyz.d1 + offsetX, head.xyz.d2 + offsetY, head.xyz.d3);
-        return new Ray(newHead, direction);
+        this(VectorMath.pointAt(point, normal, normal.dotProduct(direction) > 0 ? DELTA : -DELTA), direction);
     }
 
     /**
@@ -96,6 +97,60 @@ public class Ray {
         return direction;
     }
 
+    /**
+     * Gets the reciprocal of the x coordinate of the direction.
+     *
+     * @return 1 / x of the direction (infinite when x is zero)
+     */
+    public double getInvDirX() {
+        return invDirX;
+    }
+
+    /**
+     * Gets the reciprocal of the y coordinate of the direction.
+     *
+     * @return 1 / y of the direction (infinite when y is zero)
+     */
+    public double getInvDirY() {
+        return invDirY;
+    }
+
+    /**
+     * Gets the reciprocal of the z coordinate of the direction.
+     *
+     * @return 1 / z of the direction (infinite when z is zero)
+     */
+    public double getInvDirZ() {
+        return invDirZ;
+    }
+
+    /**
+     * Gets the sign bit of the x coordinate of the direction.
+     *
+     * @return 1 if the direction goes towards negative x, 0 otherwise
+     */
+    public int getSignX() {
+        return signX;
+    }
+
+    /**
+     * Gets the sign bit of the y coordinate of the direction.
+     *
+     * @return 1 if the direction goes towards negative y, 0 otherwise
+     */
+    public int getSignY() {
+        return signY;
+    }
+
+    /**
+     * Gets the sign bit of the z coordinate of the direction.
+     *
+     * @return 1 if the direction goes towards negative z, 0 otherwise
+     */
+    public int getSignZ() {
+        return signZ;
+    }
+
     /**
      * Get a point on the ray at a distance t from p0.
      *
@@ -106,7 +161,7 @@ public class Ray {
         if (isZero(t)) {
             return head;
         }
-        return head.add(direction.scale(t));
+        return VectorMath.pointAt(head, direction, t);
     }
 
     /**
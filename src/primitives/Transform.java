@@ -0,0 +1,223 @@
+package primitives;
+
+import static primitives.Util.isZero;
+
+/**
+ * The Transform class represents an immutable affine transformation of the 3D space -
+ * a linear 3x3 part followed by a translation. The inverse is computed once on construction,
+ * so points and vectors can be moved both ways without further matrix inversions.
+ */
+public final class Transform {
+
+    /**
+     * The identity transformation.
+     */
+    public static final Transform IDENTITY = new Transform(new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0});
+
+    /**
+     * The rows of the matrix, 4 values per row - the 3 coefficients of the linear part and the translation.
+     */
+    private final double[] m;
+
+    /**
+     * The rows of the inverse matrix, in the same layout.
+     */
+    private final double[] inv;
+
+    /**
+     * Constructs a transformation from the rows of its 3x4 matrix.
+     *
+     * @param m the 12 values of the matrix, row by row
+     * @throws IllegalArgumentException if the linear part of the matrix is singular
+     */
+    private Transform(double[] m) {
+        this.m = m;
+        // inverse of the linear part by cofactors, then the inverse translation -(L^-1 * t)
+        double c00 = m[5] * m[10] - m[6] * m[9];
+        double c01 = m[6] * m[8] - m[4] * m[10];
+        double c02 = m[4] * m[9] - m[5] * m[8];
+        double det = m[0] * c00 + m[1] * c01 + m[2] * c02;
+        if (isZero(det))
+            throw new IllegalArgumentException("Transformation must be invertible");
+        double r = 1 / det;
+        inv = new double[12];
+        inv[0] = c00 * r;
+        inv[1] = (m[2] * m[9] - m[1] * m[10]) * r;
+        inv[2] = (m[1] * m[6] - m[2] * m[5]) * r;
+        inv[4] = c01 * r;
+        inv[5] = (m[0] * m[10] - m[2] * m[8]) * r;
+        inv[6] = (m[2] * m[4] - m[0] * m[6]) * r;
+        inv[8] = c02 * r;
+        inv[9] = (m[1] * m[8] - m[0] * m[9]) * r;
+        inv[10] = (m[0] * m[5] - m[1] * m[4]) * r;
+        for (int row = 0; row < 12; row += 4)
+            inv[row + 3] = -(inv[row] * m[3] + inv[row + 1] * m[7] + inv[row + 2] * m[11]);
+    }
+
+    /**
+     * Creates a translation.
+     *
+     * @param offset the translation vector
+     * @return the transformation
+     */
+    public static Transform translation(Vector offset) {
+        return new Transform(new double[]{1, 0, 0, offset.xyz.d1, 0, 1, 0, offset.xyz.d2, 0, 0, 1, offset.xyz.d3});
+    }
+
+    /**
+     * Creates a scaling about the origin.
+     *
+     * @param sx the scale factor along the x axis
+     * @param sy the scale factor along the y axis
+     * @param sz the scale factor along the z axis
+     * @return the transformation
+     * @throws IllegalArgumentException if any of the factors is zero
+     */
+    public static Transform scaling(double sx, double sy, double sz) {
+        return new Transform(new double[]{sx, 0, 0, 0, 0, sy, 0, 0, 0, 0, sz, 0});
+    }
+
+    /**
+     * Creates a uniform scaling about the origin.
+     *
+     * @param scale the scale factor
+     * @return the transformation
+     * @throws IllegalArgumentException if the factor is zero
+     */
+    public static Transform scaling(double scale) {
+        return scaling(scale, scale, scale);
+    }
+
+    /**
+     * Creates a rotation about an axis through the origin (Rodrigues' formula).
+     *
+     * @param axis  the axis of the rotation - it does not have to be normalized
+     * @param angle the angle of the rotation, in degrees, counterclockwise when looking against the axis
+     * @return the transformation
+     */
+    public static Transform rotation(Vector axis, double angle) {
+        Vector u = axis.normalize();
+        double x = u.xyz.d1, y = u.xyz.d2, z = u.xyz.d3;
+        double rad = Math.toRadians(angle);
+        double c = Math.cos(rad), s = Math.sin(rad), k = 1 - c;
+        return new Transform(new double[]{
+                c + x * x * k, x * y * k - z * s, x * z * k + y * s, 0,
+                y * x * k + z * s, c + y * y * k, y * z * k - x * s, 0,
+                z * x * k - y * s, z * y * k + x * s, c + z * z * k, 0
+        });
+    }
+
+    /**
+     * Composes this transformation with another one, which is applied after it.
+     *
+     * @param next the transformation to apply after this one
+     * @return the composed transformation - next * this
+     */
+    public Transform then(Transform next) {
+        double[] a = next.m;
+        double[] result = new double[12];
+        for (int row = 0; row < 12; row += 4) {
+            for (int col = 0; col < 4; ++col)
+                result[row + col] = a[row] * m[col] + a[row + 1] * m[4 + col] + a[row + 2] * m[8 + col];
+            result[row + 3] += a[row + 3];
+        }
+        return new Transform(result);
+    }
+
+    /**
+     * Gets the inverse transformation.
+     *
+     * @return the inverse transformation
+     */
+    public Transform inverse() {
+        return new Transform(inv.clone());
+    }
+
+    /**
+     * Applies the transformation to a point.
+     *
+     * @param p the point
+     * @return the transformed point
+     */
+    public Point transformPoint(Point p) {
+        return applyToPoint(m, p);
+    }
+
+    /**
+     * Applies the linear part of the transformation to a vector.
+     *
+     * @param v the vector
+     * @return the transformed vector
+     */
+    public Vector transformVector(Vector v) {
+        return applyToVector(m, v);
+    }
+
+    /**
+     * Transforms a normal - applies the inverse transposed linear part, so the result stays perpendicular
+     * to the transformed surface even under a non-uniform scaling.
+     *
+     * @param n the normal
+     * @return the transformed normal, normalized
+     */
+    public Vector transformNormal(Vector n) {
+        double x = n.xyz.d1, y = n.xyz.d2, z = n.xyz.d3;
+        return new Vector(
+                inv[0] * x + inv[4] * y + inv[8] * z,
+                inv[1] * x + inv[5] * y + inv[9] * z,
+                inv[2] * x + inv[6] * y + inv[10] * z
+        ).normalize();
+    }
+
+    /**
+     * Applies the inverse transformation to a point.
+     *
+     * @param p the point
+     * @return the point before the transformation
+     */
+    public Point inverseTransformPoint(Point p) {
+        return applyToPoint(inv, p);
+    }
+
+    /**
+     * Applies the inverse linear part of the transformation to a vector.
+     *
+     * @param v the vector
+     * @return the vector before the transformation
+     */
+    public Vector inverseTransformVector(Vector v) {
+        return applyToVector(inv, v);
+    }
+
+    /**
+     * Multiplies a point by a matrix.
+     *
+     * @param a the matrix rows
+     * @param p the point
+     * @return the result
+     */
+    private static Point applyToPoint(double[] a, Point p) {
+        double x = p.xyz.d1, y = p.xyz.d2, z = p.xyz.d3;
+        return new Point(
+                a[0] * x + a[1] * y + a[2] * z + a[3],
+                a[4] * x + a[5] * y + a[6] * z + a[7],
+                a[8] * x + a[9] * y + a[10] * z + a[11]
+        );
+    }
+
+    /**
+     * Multiplies a vector by the linear part of a matrix.
+     *
+     * @param a the matrix rows
+     * @param v the vector
+     * @return the result
+     */
+    private static Vector applyToVector(double[] a, Vector v) {
+        double x = v.xyz.d1, y = v.xyz.d2, z = v.xyz.d3;
+        return new Vector(
+                a[0] * x + a[1] * y + a[2] * z,
+                a[4] * x + a[5] * y + a[6] * z,
+                a[8] * x + a[9] * y + a[10] * z
+        );
+    }
+}
@@ -30,7 +30,7 @@ public class Vector extends Point {
      */
     public Vector(Double3 xyz) {
         super(xyz);
-        if (xyz.equals(Double3.ZERO)) {
+        if (isZero(xyz.d1) && isZero(xyz.d2) && isZero(xyz.d3)) {
             throw new IllegalArgumentException("Cannot create a zero vector.");
         }
     }
@@ -74,16 +74,16 @@ public class Vector extends Point {
      *
      * @param otherVector the other vector
      * @return the resulting cross product vector
+     * @throws IllegalArgumentException if the vectors are parallel (the cross product is the zero vector)
      */
     public Vector crossProduct(Vector otherVector) {
-        if (this.normalize().equals(otherVector.normalize())) {
+        double x = xyz.d2 * otherVector.xyz.d3 - xyz.d3 * otherVector.xyz.d2;
+        double y = xyz.d3 * otherVector.xyz.d1 - xyz.d1 * otherVector.xyz.d3;
+        double z = xyz.d1 * otherVector.xyz.d2 - xyz.d2 * otherVector.xyz.d1;
+        if (isZero(x) && isZero(y) && isZero(z)) {
             throw new IllegalArgumentException("Cannot compute cross product: vectors are parallel");
         }
-        return new Vector(
-                xyz.d2 * otherVector.xyz.d3 - xyz.d3 * otherVector.xyz.d2,
-                xyz.d3 * otherVector.xyz.d1 - xyz.d1 * otherVector.xyz.d3,
-                xyz.d1 * otherVector.xyz.d2 - xyz.d2 * otherVector.xyz.d1
-        );
+        return new Vector(x, y, z);
     }
 
     /**
@@ -0,0 +1,55 @@
+package primitives;
+
+/**
+ * Allocation-free vector arithmetic for the hot paths of the ray tracer.
+ * The methods work on the coordinates directly instead of creating the intermediate
+ * {@link Double3}, {@link Point} and {@link Vector} objects of the immutable API,
+ * and create at most the single object they return.
+ */
+public final class VectorMath {
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private VectorMath() {}
+
+    /**
+     * Computes the dot product of the vector from point b to point a with a vector - (a - b) * v.
+     *
+     * @param a the head of the difference vector
+     * @param b the tail of the difference vector
+     * @param v the vector
+     * @return the dot product
+     */
+    public static double dotDifference(Point a, Point b, Vector v) {
+        return (a.xyz.d1 - b.xyz.d1) * v.xyz.d1
+                + (a.xyz.d2 - b.xyz.d2) * v.xyz.d2
+                + (a.xyz.d3 - b.xyz.d3) * v.xyz.d3;
+    }
+
+    /**
+     * Computes the point at a distance along a direction - p0 + t * dir.
+     *
+     * @param p0  the starting point
+     * @param dir the direction
+     * @param t   the distance (in units of the direction's length)
+     * @return the point
+     */
+    public static Point pointAt(Point p0, Vector dir, double t) {
+        return new Point(p0.xyz.d1 + t * dir.xyz.d1, p0.xyz.d2 + t * dir.xyz.d2, p0.xyz.d3 + t * dir.xyz.d3);
+    }
+
+    /**
+     * Reflects a vector about a unit normal - v - 2 * (v * n) * n.
+     *
+     * @param v  the vector
+     * @param n  the unit normal
+     * @param vn the dot product of the vector and the normal, already known to the caller
+     * @return the reflected vector
+     * @throws IllegalArgumentException if the reflected vector is the zero vector
+     */
+    public static Vector reflect(Vector v, Vector n, double vn) {
+        double k = 2 * vn;
+        return new Vector(v.xyz.d1 - k * n.xyz.d1, v.xyz.d2 - k * n.xyz.d2, v.xyz.d3 - k * n.xyz.d3);
+    }
+}
@@ -5,12 +5,14 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.util.Arrays;
+import java.util.Map;
 import java.util.MissingResourceException;
-import java.util.Random;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
 
 import static primitives.Util.isZero;
 
@@ -70,8 +72,35 @@ public class Camera implements Cloneable {
      */
     private boolean useMultiThreading = false; // Default is false
 
+    /**
+     * The number of rendering threads when multi-threading is enabled, 0 for one thread per available processor.
+     */
+    private int threadsCount = 0;
+
+    /**
+     * The width and height, in pixels, of the square tiles rendered as single tasks when multi-threading is enabled.
+     */
+    private int tileSize = 16;
+
+    /**
+     * The width and height, in pixels, of the square blocks whose primary rays are traced as a single packet,
+     * 1 to trace every ray on its own.
+     */
+    private int packetSize = 1;
+
+    /**
+     * The rendering pools, one per number of threads, shared by all the cameras and reused between renders.
+     */
+    private static final Map<Integer, ForkJoinPool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * The sampler providing the random generators that jitter the anti-aliasing samples of the pixels.
+     */
+    private Sampler sampler = Sampler.deterministic(0);
+
     /**
      * Method to enable or disable multi-threading.
+     * The image is split into square tiles that are rendered on a shared work-stealing pool.
      *
      * @param useMultiThreading true to enable multi-threading, false to disable
      * @return the current camera instance for chaining
@@ -81,6 +110,69 @@ public class Camera implements Cloneable {
         return this;
     }
 
+    /**
+     * Sets the number of rendering threads used when multi-threading is enabled.
+     *
+     * @param threadsCount the number of threads, 0 for one thread per available processor
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the number of threads is negative
+     */
+    public Camera setThreadsCount(int threadsCount) {
+        if (threadsCount < 0) {
+            throw new IllegalArgumentException("Threads count cannot be negative");
+        }
+        this.threadsCount = threadsCount;
+        return this;
+    }
+
+    /**
+     * Sets the sampler providing the random generators that jitter the anti-aliasing samples of the pixels.
+     *
+     * @param sampler the sampler
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the sampler is null
+     */
+    public Camera setSampler(Sampler sampler) {
+        if (sampler == null) {
+            throw new IllegalArgumentException("Sampler cannot be null");
+        }
+        this.sampler = sampler;
+        return this;
+    }
+
+    /**
+     * Sets the size of the square tiles rendered as single tasks when multi-threading is enabled.
+     *
+     * @param tileSize the width and height of a tile, in pixels
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the tile size is not positive
+     */
+    public Camera setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        this.tileSize = tileSize;
+        return this;
+    }
+
+
+    /**
+     * Sets the size of the square blocks of pixels whose primary rays are traced together as a packet
+     * (see {@link RayTracerBase#traceRays(Ray[])}) by {@link #renderImage()}.
+     * Neighbouring primary rays are coherent, so a packet traverses the scene hierarchy once
+     * instead of once per ray. Typical sizes are 4 and 8.
+     *
+     * @param packetSize the width and height of a block, in pixels, 1 to trace every ray on its own
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the packet size is not positive
+     */
+    public Camera setPacketSize(int packetSize) {
+        if (packetSize <= 0) {
+            throw new IllegalArgumentException("Packet size must be positive");
+        }
+        this.packetSize = packetSize;
+        return this;
+    }
 
     /**
      * Constructs a new Camera object.
@@ -161,79 +253,301 @@ public class Camera implements Cloneable {
     }
 
     /**
-     * Constructs a ray from the camera through the specified pixel.
-     *
-     * @param nX the x-coordinate of the pixel
-     * @param nY the y-coordinate of the pixel
-     * @param j  the x-coordinate of the pixel in the screen
-     * @param i  the y-coordinate of the pixel in the screen
-     * @return the ray from the camera through the specified pixel
+     * The view plane precomputed for the image resolution of the last constructed ray.
      */
-    public Ray constructRay(int nX, int nY, int j, int i) {
-        // Calculate the center point of the view plane
-        Point pCenter = position.add(vTo.scale(distanceToScreen));
+    private volatile ViewPlane viewPlane = null;
 
-        // Calculate the width and height of each pixel
-        double rY = screenHeight / nY;
-        double rX = screenWidth / nX;
-
-        // Calculate the offsets of the pixel from the center
-        double yI = -(i - (nY - 1) / 2.0) * rY;
-        double xJ = (j - (nX - 1) / 2.0) * rX;
+    /**
+     * The view plane of the camera for an image resolution - the center of the top left pixel and the steps
+     * between neighbouring pixels, as world-space coordinates. The position of any point of the view plane,
+     * given in pixel coordinates, is then three multiply-adds per coordinate.
+     * Immutable, so the rendering threads can share it.
+     */
+    private static final class ViewPlane {
+        private final int nX, nY;
+        private final double originX, originY, originZ;
+        private final double rightX, rightY, rightZ;
+        private final double downX, downY, downZ;
 
-        // Calculate the position of the pixel on the view plane
-        Point pIJ = pCenter;
-        if (!isZero(xJ)) {
-            pIJ = pIJ.add(vRight.scale(xJ));
+        /**
+         * Precomputes the view plane of a camera.
+         *
+         * @param camera the camera
+         * @param nX     the number of pixels in a row
+         * @param nY     the number of pixels in a column
+         */
+        ViewPlane(Camera camera, int nX, int nY) {
+            this.nX = nX;
+            this.nY = nY;
+            double rX = camera.screenWidth / nX;
+            double rY = camera.screenHeight / nY;
+            Vector right = camera.vRight, up = camera.vUp, to = camera.vTo;
+            rightX = right.getX() * rX;
+            rightY = right.getY() * rX;
+            rightZ = right.getZ() * rX;
+            downX = -up.getX() * rY;
+            downY = -up.getY() * rY;
+            downZ = -up.getZ() * rY;
+            // the center of the view plane, moved to the center of pixel (0, 0)
+            double dj = -(nX - 1) / 2.0, di = -(nY - 1) / 2.0;
+            originX = to.getX() * camera.distanceToScreen + rightX * dj + downX * di;
+            originY = to.getY() * camera.distanceToScreen + rightY * dj + downY * di;
+            originZ = to.getZ() * camera.distanceToScreen + rightZ * dj + downZ * di;
         }
-        if (!isZero(yI)) {
-            pIJ = pIJ.add(vUp.scale(yI));
+    }
+
+    /**
+     * Gets the view plane for an image resolution, precomputing it on the first ray of a new resolution.
+     *
+     * @param nX the number of pixels in a row
+     * @param nY the number of pixels in a column
+     * @return the view plane
+     */
+    private ViewPlane getViewPlane(int nX, int nY) {
+        ViewPlane plane = viewPlane;
+        if (plane == null || plane.nX != nX || plane.nY != nY) {
+            plane = new ViewPlane(this, nX, nY);
+            viewPlane = plane;
         }
+        return plane;
+    }
 
-        // Calculate the direction from the camera position to the pixel
-        Vector dir = pIJ.subtract(position).normalize();
+    /**
+     * Constructs a ray from the camera position in a direction relative to it, normalizing the direction.
+     *
+     * @param x the x-coordinate of the direction
+     * @param y the y-coordinate of the direction
+     * @param z the z-coordinate of the direction
+     * @return the ray
+     */
+    private Ray rayTo(double x, double y, double z) {
+        double scale = 1 / Math.sqrt(x * x + y * y + z * z);
+        return new Ray(position, new Vector(x * scale, y * scale, z * scale));
+    }
+
+    /**
+     * Constructs a ray from the camera through the center of the specified pixel.
+     *
+     * @param nX the number of pixels in a row
+     * @param nY the number of pixels in a column
+     * @param j  the column of the pixel
+     * @param i  the row of the pixel
+     * @return the ray from the camera through the specified pixel
+     */
+    public Ray constructRay(int nX, int nY, int j, int i) {
+        return constructRay(nX, nY, j, i, 0, 0);
+    }
+
+    /**
+     * Constructs a ray from the camera through a point of the specified pixel, given by its offset from the
+     * center of the pixel in pixel units - e.g. (-0.5, -0.5) is the top left corner of the pixel.
+     * The offset follows the camera orientation, so anti-aliasing samples stay on the view plane.
+     *
+     * @param nX the number of pixels in a row
+     * @param nY the number of pixels in a column
+     * @param j  the column of the pixel
+     * @param i  the row of the pixel
+     * @param dx the offset to the right, in pixels
+     * @param dy the offset downwards, in pixels
+     * @return the ray from the camera through the specified point
+     */
+    public Ray constructRay(int nX, int nY, int j, int i, double dx, double dy) {
+        ViewPlane plane = getViewPlane(nX, nY);
+        double x = j + dx, y = i + dy;
+        return rayTo(plane.originX + plane.rightX * x + plane.downX * y,
+                plane.originY + plane.rightY * x + plane.downY * y,
+                plane.originZ + plane.rightZ * x + plane.downZ * y);
+    }
 
-        // Construct and return the ray
-        return new Ray(position, dir);
+    /**
+     * Constructs the rays through the centers of a block of pixels, row by row.
+     * The directions are advanced by the pixel steps along every row instead of being recalculated.
+     *
+     * @param nX the number of pixels in a row
+     * @param nY the number of pixels in a column
+     * @param x0 the first column of the block (inclusive)
+     * @param y0 the first row of the block (inclusive)
+     * @param x1 the last column of the block (exclusive)
+     * @param y1 the last row of the block (exclusive)
+     * @return the rays, row by row
+     */
+    public Ray[] constructRays(int nX, int nY, int x0, int y0, int x1, int y1) {
+        ViewPlane plane = getViewPlane(nX, nY);
+        Ray[] rays = new Ray[(x1 - x0) * (y1 - y0)];
+        int r = 0;
+        for (int i = y0; i < y1; i++) {
+            double x = plane.originX + plane.rightX * x0 + plane.downX * i;
+            double y = plane.originY + plane.rightY * x0 + plane.downY * i;
+            double z = plane.originZ + plane.rightZ * x0 + plane.downZ * i;
+            for (int j = x0; j < x1; j++) {
+                rays[r++] = rayTo(x, y, z);
+                x += plane.rightX;
+                y += plane.rightY;
+                z += plane.rightZ;
+            }
+        }
+        return rays;
     }
 
     /**
-     * Renders the image by tracing rays through each pixel.
+     * Renders the image by tracing rays through each pixel, in packets of neighbouring pixels if a packet size
+     * larger than 1 was set (see {@link #setPacketSize(int)}).
      *
      * @return the current camera instance for chaining
      */
     public Camera renderImage() {
         int nX = imageWriter.getNx();
         int nY = imageWriter.getNy();
+        if (packetSize == 1)
+            renderPixels((j, i) -> castRay(nX, nY, j, i));
+        else
+            renderBlocks(packetSize, (x0, y0, x1, y1) -> castPacket(nX, nY, x0, y0, x1, y1));
+        return this;
+    }
 
-        if(useMultiThreading) {
-            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    /**
+     * The rendering of a single pixel.
+     */
+    @FunctionalInterface
+    private interface PixelRenderer {
+        /**
+         * Renders a pixel and writes its color to the image.
+         *
+         * @param j the x-coordinate of the pixel
+         * @param i the y-coordinate of the pixel
+         */
+        void render(int j, int i);
+    }
 
-            for (int i = 0; i < nY; i++) {
-                for (int j = 0; j < nX; j++) {
-                    final int pixelI = i;
-                    final int pixelJ = j;
-                    executor.execute(() -> castRay(nX, nY, pixelJ, pixelI));
-                }
-            }
+    /**
+     * The rendering of a rectangular block of pixels.
+     */
+    @FunctionalInterface
+    private interface BlockRenderer {
+        /**
+         * Renders the pixels of a block and writes their colors to the image.
+         *
+         * @param x0 the x-coordinate of the first column of the block (inclusive)
+         * @param y0 the y-coordinate of the first row of the block (inclusive)
+         * @param x1 the x-coordinate of the last column of the block (exclusive)
+         * @param y1 the y-coordinate of the last row of the block (exclusive)
+         */
+        void render(int x0, int y0, int x1, int y1);
+    }
 
-            executor.shutdown();
-            try {
-                executor.awaitTermination(1, TimeUnit.HOURS);
-            } catch (InterruptedException e) {
-                throw new RuntimeException("Image rendering interrupted", e);
+    /**
+     * Renders all the pixels of the image - row by row, or in tiles on the rendering pool if multi-threading is enabled.
+     *
+     * @param pixel the rendering of a single pixel
+     */
+    private void renderPixels(PixelRenderer pixel) {
+        renderBlocks(1, (x0, y0, x1, y1) -> pixel.render(x0, y0));
+    }
+
+    /**
+     * Renders all the pixels of the image in square blocks - row by row, or in tiles on the rendering pool
+     * if multi-threading is enabled. The tiles are rounded up to whole blocks, and the blocks at the right
+     * and bottom edges of the image are clipped.
+     *
+     * @param blockSize the width and height of a block, in pixels
+     * @param block     the rendering of a block
+     */
+    private void renderBlocks(int blockSize, BlockRenderer block) {
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+
+        if (!useMultiThreading) {
+            for (int i = 0; i < nY; i += blockSize)
+                for (int j = 0; j < nX; j += blockSize)
+                    block.render(j, i, Math.min(j + blockSize, nX), Math.min(i + blockSize, nY));
+            return;
+        }
+
+        int tile = (tileSize + blockSize - 1) / blockSize * blockSize;
+        int tilesX = (nX + tile - 1) / tile;
+        int tilesY = (nY + tile - 1) / tile;
+        int[] tiles = zOrder(tilesX, tilesY);
+        int threads = threadsCount == 0 ? Runtime.getRuntime().availableProcessors() : threadsCount;
+        pools.computeIfAbsent(threads, ForkJoinPool::new)
+                .invoke(new TilesTask(block, blockSize, tile, tiles, tilesX, 0, tiles.length));
+    }
+
+    /**
+     * Orders the tiles of the image along a Z-order (Morton) curve, so every range of consecutive tiles
+     * covers a compact region of the image, whose rays hit the same parts of the scene.
+     *
+     * @param tilesX the number of tiles in a row
+     * @param tilesY the number of tiles in a column
+     * @return the indices (row * tilesX + column) of the tiles, in Z-order
+     */
+    private static int[] zOrder(int tilesX, int tilesY) {
+        long[] keys = new long[tilesX * tilesY];
+        for (int ty = 0; ty < tilesY; ty++)
+            for (int tx = 0; tx < tilesX; tx++) {
+                long code = 0;
+                for (int bit = 0; bit < 16; bit++)
+                    code |= ((long) (tx >> bit & 1) << (2 * bit)) | ((long) (ty >> bit & 1) << (2 * bit + 1));
+                keys[ty * tilesX + tx] = code << 32 | (ty * tilesX + tx);
             }
+        Arrays.sort(keys);
 
-            return this;
+        int[] tiles = new int[keys.length];
+        for (int k = 0; k < keys.length; k++)
+            tiles[k] = (int) keys[k];
+        return tiles;
+    }
+
+    /**
+     * Renders a range of the Z-ordered tiles, splitting it in halves until a single tile is left.
+     * An idle thread steals the largest pending half, which is also a compact region of the image.
+     */
+    private class TilesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final BlockRenderer block;
+        private final int blockSize;
+        private final int tile;
+        private final int[] tiles;
+        private final int tilesX;
+        private final int begin;
+        private final int end;
+
+        /**
+         * Constructs a task over a range of the tiles.
+         *
+         * @param block     the rendering of a block
+         * @param blockSize the width and height of a block, in pixels
+         * @param tile      the width and height of a tile, in pixels - a multiple of the block size
+         * @param tiles     the indices of the tiles, in Z-order
+         * @param tilesX    the number of tiles in a row
+         * @param begin     the first index of the range (inclusive)
+         * @param end       the last index of the range (exclusive)
+         */
+        TilesTask(BlockRenderer block, int blockSize, int tile, int[] tiles, int tilesX, int begin, int end) {
+            this.block = block;
+            this.blockSize = blockSize;
+            this.tile = tile;
+            this.tiles = tiles;
+            this.tilesX = tilesX;
+            this.begin = begin;
+            this.end = end;
         }
-        else{
-            for (int i = 0; i < nY; i++) {
-                for (int j = 0; j < nX; j++) {
-                    castRay(nX, nY, j, i);
-                }
+
+        @Override
+        protected void compute() {
+            if (end - begin > 1) {
+                int mid = (begin + end) >>> 1;
+                invokeAll(new TilesTask(block, blockSize, tile, tiles, tilesX, begin, mid),
+                        new TilesTask(block, blockSize, tile, tiles, tilesX, mid, end));
+                return;
             }
-            //throw new RuntimeException("UnsupportedOperationException");
-            return this;
+
+            int x0 = tiles[begin] % tilesX * tile;
+            int y0 = tiles[begin] / tilesX * tile;
+            int x1 = Math.min(x0 + tile, imageWriter.getNx());
+            int y1 = Math.min(y0 + tile, imageWriter.getNy());
+            for (int i = y0; i < y1; i += blockSize)
+                for (int j = x0; j < x1; j += blockSize)
+                    block.render(j, i, Math.min(j + blockSize, x1), Math.min(i + blockSize, y1));
         }
     }
 
@@ -251,6 +565,24 @@ public class Camera implements Cloneable {
         imageWriter.writePixel(j, i, color);
     }
 
+    /**
+     * Casts the rays through a block of pixels as a single packet and writes their colors to the image.
+     *
+     * @param nX the number of pixels in the x direction
+     * @param nY the number of pixels in the y direction
+     * @param x0 the x-coordinate of the first column of the block (inclusive)
+     * @param y0 the y-coordinate of the first row of the block (inclusive)
+     * @param x1 the x-coordinate of the last column of the block (exclusive)
+     * @param y1 the y-coordinate of the last row of the block (exclusive)
+     */
+    private void castPacket(int nX, int nY, int x0, int y0, int x1, int y1) {
+        int width = x1 - x0;
+        Color[] colors = rayTracer.traceRays(constructRays(nX, nY, x0, y0, x1, y1));
+        for (int i = y0; i < y1; i++)
+            for (int j = x0; j < x1; j++)
+                imageWriter.writePixel(j, i, colors[(i - y0) * width + j - x0]);
+    }
+
     /**
      * Writes the rendered image to a file.
      */
@@ -286,71 +618,199 @@ public class Camera implements Cloneable {
 
         int nX = imageWriter.getNx();
         int nY = imageWriter.getNy();
-        Random rand = new Random();
         int sqrtSamples = (int) Math.sqrt(numSamples);
 
-        if(useMultiThreading){
-            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-
-            for (int i = 0; i < nY; ++i) {
-                for (int j = 0; j < nX; ++j) {
-                    final int pixelI = i;
-                    final int pixelJ = j;
-                    executor.execute(() -> {
-                        Color finalColor = Color.BLACK;
-                        Ray centerRay = constructRay(nX, nY, pixelJ, pixelI);
-
-                        // Loop over grid cells within the pixel
-                        for (int p = 0; p < sqrtSamples; ++p) {
-                            for (int q = 0; q < sqrtSamples; ++q) {
-                                // Jittering within the grid cell
-                                double offsetX = (p + rand.nextDouble()) / sqrtSamples - 0.5;
-                                double offsetY = (q + rand.nextDouble()) / sqrtSamples - 0.5;
-                                Ray offsetRay = centerRay.createWithOffset(offsetX, offsetY);
-                                finalColor = finalColor.add(rayTracer.traceRay(offsetRay));
-                            }
-                        }
-                        finalColor = finalColor.reduce(numSamples);
-                        synchronized (imageWriter) {
-                            imageWriter.writePixel(pixelJ, pixelI, finalColor);
-                        }
-                    });
+        renderPixels((j, i) -> {
+            RandomGenerator rand = sampler.forPixel(j, i);
+            Color finalColor = Color.BLACK;
+
+            // Loop over grid cells within the pixel
+            for (int p = 0; p < sqrtSamples; ++p) {
+                for (int q = 0; q < sqrtSamples; ++q) {
+                    // Jittering within the grid cell
+                    double offsetX = (p + rand.nextDouble()) / sqrtSamples - 0.5;
+                    double offsetY = (q + rand.nextDouble()) / sqrtSamples - 0.5;
+                    Ray offsetRay = constructRay(nX, nY, j, i, offsetX, offsetY);
+                    finalColor = finalColor.add(rayTracer.traceRay(offsetRay));
                 }
             }
+            finalColor = finalColor.reduce(numSamples);
+            imageWriter.writePixel(j, i, finalColor);
+        });
+        return this;
+    }
 
-            executor.shutdown();
-            try {
-                executor.awaitTermination(1, TimeUnit.HOURS);
-            } catch (InterruptedException e) {
-                throw new RuntimeException("Image rendering interrupted", e);
-            }
 
-            return this;
+    /**
+     * The listener of a progressive rendering, called after every pass, when the image holds a valid result.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after a pass has been accumulated into the image - e.g. to write a preview with
+         * {@link Camera#writeToImage()}, or to stop once the image is good enough.
+         *
+         * @param pass    the number of the completed pass, starting at 1
+         * @param samples the number of samples per pixel accumulated so far
+         * @return true to continue with the next pass, false to stop the rendering
+         */
+        boolean passCompleted(int pass, int samples);
+    }
 
+    /**
+     * Renders the image progressively, in passes of increasing samples per pixel accumulated into the image.
+     * The first pass traces the center of every pixel (like {@link #renderImage()}), and every following pass
+     * adds as many jittered samples as accumulated so far, so the samples per pixel double: 1, 2, 4, ...
+     * until the budget is reached. The image after every pass is a valid, less converged render, so
+     * the listener may publish it as a preview and stop the rendering at any pass.
+     * The jitter is drawn from the sampler of the pixel, skipping the values used by the earlier passes,
+     * so a deterministic sampler renders the same image regardless of the threads.
+     *
+     * @param maxSamples the maximal number of samples per pixel
+     * @param listener   the listener called after every pass
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the budget is not positive or the listener is null
+     */
+    public Camera renderImageProgressive(int maxSamples, ProgressListener listener) {
+        if (imageWriter == null || rayTracer == null) {
+            throw new MissingResourceException("Missing resources for rendering", "", "");
+        }
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("At least 1 sample per pixel is required");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
         }
 
-        else {
-            for (int i = 0; i < nY; ++i) {
-                for (int j = 0; j < nX; ++j) {
-                    Color finalColor = Color.BLACK;
-                    Ray centerRay = constructRay(nX, nY, j, i);
-
-                    // Loop over grid cells within the pixel
-                    for (int p = 0; p < sqrtSamples; ++p) {
-                        for (int q = 0; q < sqrtSamples; ++q) {
-                            // Jittering within the grid cell
-                            double offsetX = (p + rand.nextDouble()) / sqrtSamples - 0.5;
-                            double offsetY = (q + rand.nextDouble()) / sqrtSamples - 0.5;
-                            Ray offsetRay = centerRay.createWithOffset(offsetX, offsetY);
-                            finalColor = finalColor.add(rayTracer.traceRay(offsetRay));
-                        }
-                    }
-                    finalColor = finalColor.reduce(numSamples);
-                    imageWriter.writePixel(j, i, finalColor);
+        renderImage();
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        int samples = 1;
+        for (int pass = 1; listener.passCompleted(pass, samples) && samples < maxSamples; pass++) {
+            int used = samples - 1; // jittered samples accumulated by the earlier passes
+            int count = Math.min(samples, maxSamples - samples);
+            renderPixels((j, i) -> {
+                RandomGenerator rand = sampler.forPixel(j, i);
+                for (int k = 0; k < 2 * used; k++) rand.nextDouble();
+                for (int k = 0; k < count; k++) {
+                    double offsetX = rand.nextDouble() - 0.5;
+                    double offsetY = rand.nextDouble() - 0.5;
+                    imageWriter.accumulatePixel(j, i, rayTracer.traceRay(constructRay(nX, nY, j, i, offsetX, offsetY)));
                 }
-            }
-            return this;
+            });
+            samples += count;
         }
+        return this;
+    }
+
+    /**
+     * Renders the image using adaptive anti-aliasing.
+     * Every pixel starts with the rays through its four corners. A square of rays whose colors differ from
+     * their average by more than the threshold is subdivided into four squares, until the budget is reached -
+     * so the extra rays are spent only on edges and other high contrast areas.
+     * The rays of a pixel lie on a grid of (2^d + 1)^2 points, the finest grid within the budget, and every
+     * point is traced once - the corners and edge midpoints shared by neighbouring squares are reused.
+     *
+     * @param maxSamples the maximal number of rays per pixel, at least 4
+     * @param threshold  the largest color difference (per rgb component) accepted without subdividing
+     * @return the current camera instance for chaining
+     * @throws IllegalArgumentException if the budget is lower than 4 or the threshold is negative
+     */
+    public Camera renderImageWithAdaptiveAntiAliasing(int maxSamples, double threshold) {
+        if (imageWriter == null || rayTracer == null) {
+            throw new MissingResourceException("Missing resources for rendering", "", "");
+        }
+        if (maxSamples < 4) {
+            throw new IllegalArgumentException("At least 4 samples per pixel are required");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+
+        // the finest grid of (2^d + 1)^2 rays that fits in the budget
+        int maxDepth = 0;
+        while (((2 << maxDepth) + 1) * ((2 << maxDepth) + 1) <= maxSamples) maxDepth++;
+        int cells = 1 << maxDepth;
+
+        int nX = imageWriter.getNx();
+        int nY = imageWriter.getNy();
+        renderPixels((j, i) -> {
+            PixelGrid grid = new PixelGrid(nX, nY, j, i, cells);
+            imageWriter.writePixel(j, i, adaptiveSample(grid, 0, 0, cells, threshold));
+        });
+        return this;
+    }
+
+    /**
+     * The sample rays of a single pixel on a square grid, each traced on its first use only.
+     */
+    private final class PixelGrid {
+        private final int nX, nY, j, i;
+        private final int cells;
+        private final Color[] colors;
+
+        /**
+         * Constructs the grid of a pixel.
+         *
+         * @param nX    the number of pixels in a row
+         * @param nY    the number of pixels in a column
+         * @param j     the column of the pixel
+         * @param i     the row of the pixel
+         * @param cells the number of grid cells along a side of the pixel
+         */
+        PixelGrid(int nX, int nY, int j, int i, int cells) {
+            this.nX = nX;
+            this.nY = nY;
+            this.j = j;
+            this.i = i;
+            this.cells = cells;
+            colors = new Color[(cells + 1) * (cells + 1)];
+        }
+
+        /**
+         * Gets the color of the ray through a grid point, tracing it if it was not traced yet.
+         *
+         * @param x the column of the grid point, 0 at the left edge of the pixel
+         * @param y the row of the grid point, 0 at the top edge of the pixel
+         * @return the color of the ray
+         */
+        Color get(int x, int y) {
+            int index = y * (cells + 1) + x;
+            if (colors[index] == null)
+                colors[index] = rayTracer.traceRay(
+                        constructRay(nX, nY, j, i, (double) x / cells - 0.5, (double) y / cells - 0.5));
+            return colors[index];
+        }
+    }
+
+    /**
+     * Calculates the color of a square of the pixel from the colors of its corners, subdividing it while they disagree.
+     *
+     * @param grid      the sample rays of the pixel
+     * @param x         the column of the top left corner of the square on the grid
+     * @param y         the row of the top left corner of the square on the grid
+     * @param size      the side of the square, in grid cells
+     * @param threshold the largest color difference accepted without subdividing
+     * @return the color of the square
+     */
+    private Color adaptiveSample(PixelGrid grid, int x, int y, int size, double threshold) {
+        Color topLeft = grid.get(x, y);
+        Color topRight = grid.get(x + size, y);
+        Color bottomLeft = grid.get(x, y + size);
+        Color bottomRight = grid.get(x + size, y + size);
+        Color average = topLeft.add(topRight, bottomLeft, bottomRight).reduce(4);
+        if (size == 1
+                || average.difference(topLeft) <= threshold && average.difference(topRight) <= threshold
+                && average.difference(bottomLeft) <= threshold && average.difference(bottomRight) <= threshold) {
+            return average;
+        }
+
+        int half = size / 2;
+        return adaptiveSample(grid, x, y, half, threshold)
+                .add(adaptiveSample(grid, x + half, y, half, threshold),
+                        adaptiveSample(grid, x, y + half, half, threshold),
+                        adaptiveSample(grid, x + half, y + half, half, threshold))
+                .reduce(4);
     }
 
 
@@ -4,6 +4,7 @@ import primitives.Color;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
 import java.io.IOException;
 import java.util.logging.Level;
@@ -13,7 +14,9 @@ import java.util.logging.Logger;
  * Image writer class combines accumulation of pixel color matrix and finally
  * producing a non-optimized jpeg image from this matrix. The class although is
  * responsible of holding image related parameters of View Plane - pixel matrix
- * size and resolution
+ * size and resolution.
+ * The colors are kept unclamped (high dynamic range) in a float buffer, and are tone mapped
+ * into 8 bit pixels only when the image is written.
  *
  * @author Dan
  */
@@ -32,9 +35,22 @@ public class ImageWriter {
      */
     private int nY;
     /**
-     * Image generation buffer (the matrix of the pixels)
+     * Image generation buffer - the sums of the colors written to every pixel, 3 values (r, g, b) per pixel,
+     * row by row. Pixels are written without locking, so every pixel must be written by a single thread at a time.
      */
-    private BufferedImage image;
+    private final float[] pixels;
+    /**
+     * The number of colors summed into every pixel
+     */
+    private final int[] samples;
+    /**
+     * The tone mapping operator applied when the image is written
+     */
+    private ToneMapping toneMapping = ToneMapping.CLAMP;
+    /**
+     * The factor the colors are multiplied by before the tone mapping
+     */
+    private double exposure = 1;
     /**
      * image file name, not including the file extension '.png'
      */
@@ -58,7 +74,22 @@ public class ImageWriter {
         this.nX = nX;
         this.nY = nY;
 
-        image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        pixels = new float[nX * nY * 3];
+        samples = new int[nX * nY];
+    }
+
+    /**
+     * The tone mapping operators, mapping the high dynamic range colors into 8 bit pixels
+     */
+    public enum ToneMapping {
+        /**
+         * Every component is clamped to 255
+         */
+        CLAMP,
+        /**
+         * Every component c is mapped to c / (1 + c), in units of 255 - bright colors are compressed instead of clamped
+         */
+        REINHARD
     }
 
     // ***************** Getters/Setters ********************** //
@@ -81,14 +112,52 @@ public class ImageWriter {
         return nX;
     }
 
+    /**
+     * Sets the tone mapping operator applied when the image is written
+     *
+     * @param toneMapping the tone mapping operator
+     * @return the image writer itself - for chaining
+     * @throws IllegalArgumentException if the tone mapping operator is null
+     */
+    public ImageWriter setToneMapping(ToneMapping toneMapping) {
+        if (toneMapping == null) throw new IllegalArgumentException("Tone mapping cannot be null");
+        this.toneMapping = toneMapping;
+        return this;
+    }
+
+    /**
+     * Sets the exposure - the factor the colors are multiplied by before the tone mapping
+     *
+     * @param exposure the exposure factor
+     * @return the image writer itself - for chaining
+     * @throws IllegalArgumentException if the exposure is not positive
+     */
+    public ImageWriter setExposure(double exposure) {
+        if (exposure <= 0) throw new IllegalArgumentException("Exposure must be positive");
+        this.exposure = exposure;
+        return this;
+    }
+
     // ***************** Operations ******************** //
 
     /**
      * Function writeToImage produces unoptimized png file of the image according
      * to
-     * pixel color matrix in the directory of the project
+     * pixel color matrix in the directory of the project.
+     * The pixels are tone mapped and stored into the raster of the image in a single pass.
      */
     public void writeToImage() {
+        BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int p = 0; p < raster.length; p++) {
+            int count = samples[p];
+            if (count == 0) continue;
+            double scale = exposure / count;
+            raster[p] = toneMap(pixels[p * 3] * scale) << 16
+                    | toneMap(pixels[p * 3 + 1] * scale) << 8
+                    | toneMap(pixels[p * 3 + 2] * scale);
+        }
+
         try {
             File file = new File(FOLDER_PATH + '/' + imageName + ".png");
             ImageIO.write(image, "png", file);
@@ -98,16 +167,72 @@ public class ImageWriter {
         }
     }
 
+    /**
+     * Maps a color component into an 8 bit value by the tone mapping operator
+     *
+     * @param value the color component, after the exposure
+     * @return the 8 bit value
+     */
+    private int toneMap(double value) {
+        if (toneMapping == ToneMapping.REINHARD) value = value / (1 + value / 255);
+        int component = (int) value;
+        return component > 255 ? 255 : Math.max(component, 0);
+    }
+
     /**
      * The function writePixel writes a color of a specific pixel into pixel color
-     * matrix
+     * matrix, replacing the colors written to the pixel before
      *
      * @param xIndex X axis index of the pixel
      * @param yIndex Y axis index of the pixel
      * @param color  final color of the pixel
      */
     public void writePixel(int xIndex, int yIndex, Color color) {
-        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        int p = yIndex * nX + xIndex;
+        pixels[p * 3] = (float) color.getRed();
+        pixels[p * 3 + 1] = (float) color.getGreen();
+        pixels[p * 3 + 2] = (float) color.getBlue();
+        samples[p] = 1;
+    }
+
+    /**
+     * The function accumulatePixel adds a color sample to a specific pixel -
+     * the pixel gets the average of all the samples added to it
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @param color  the color sample
+     */
+    public void accumulatePixel(int xIndex, int yIndex, Color color) {
+        int p = yIndex * nX + xIndex;
+        pixels[p * 3] += (float) color.getRed();
+        pixels[p * 3 + 1] += (float) color.getGreen();
+        pixels[p * 3 + 2] += (float) color.getBlue();
+        samples[p]++;
     }
 
-}
\ No newline at end of file
+    /**
+     * Gets the color of a specific pixel - the average of the samples written to it, before the tone mapping
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the color of the pixel, black if nothing was written to it
+     */
+    public Color getPixel(int xIndex, int yIndex) {
+        int p = yIndex * nX + xIndex;
+        int count = samples[p];
+        if (count == 0) return Color.BLACK;
+        return new Color(pixels[p * 3] / count, pixels[p * 3 + 1] / count, pixels[p * 3 + 2] / count);
+    }
+
+    /**
+     * Gets the number of color samples written to a specific pixel
+     *
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the number of samples
+     */
+    public int getSampleCount(int xIndex, int yIndex) {
+        return samples[yIndex * nX + xIndex];
+    }
+}
@@ -24,4 +24,18 @@ public abstract class RayTracerBase {
      * @return the color at the closest intersection.
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Trace a packet of coherent rays - e.g. the primary rays of a block of neighbouring pixels.
+     * The default implementation traces the rays one by one.
+     *
+     * @param rays the rays to trace.
+     * @return the colors of the rays, in the same order.
+     */
+    public Color[] traceRays(Ray[] rays) {
+        Color[] colors = new Color[rays.length];
+        for (int r = 0; r < rays.length; r++)
+            colors[r] = traceRay(rays[r]);
+        return colors;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package renderer;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * The Sampler interface provides the random generators used to jitter the sample rays of a pixel.
+ * A pixel gets its own generator, so rendering threads never share the state of a generator.
+ */
+@FunctionalInterface
+public interface Sampler {
+    /**
+     * Returns the random generator for the samples of a pixel.
+     * The generator is used by the calling thread only, for the samples of this pixel.
+     *
+     * @param j the x-coordinate of the pixel
+     * @param i the y-coordinate of the pixel
+     * @return the random generator
+     */
+    RandomGenerator forPixel(int j, int i);
+
+    /**
+     * Creates a deterministic sampler - the generator of a pixel is a SplittableRandom seeded by a hash
+     * of the seed and the coordinates of the pixel, so a render produces the same image bit for bit
+     * regardless of the number of threads and of the order in which the pixels are rendered.
+     *
+     * @param seed the seed of the whole image
+     * @return the sampler
+     */
+    static Sampler deterministic(long seed) {
+        return (j, i) -> {
+            // SplitMix64 finalizer over the seed and the pixel coordinates
+            long key = seed * 0x9E3779B97F4A7C15L + ((long) i << 32 | j & 0xFFFFFFFFL);
+            key = (key ^ key >>> 30) * 0xBF58476D1CE4E5B9L;
+            key = (key ^ key >>> 27) * 0x94D049BB133111EBL;
+            return new SplittableRandom(key ^ key >>> 31);
+        };
+    }
+
+    /**
+     * Creates a sampler using the generator of the current thread - contention free, but not reproducible.
+     *
+     * @return the sampler
+     */
+    static Sampler threadLocal() {
+        return (j, i) -> ThreadLocalRandom.current();
+    }
+}
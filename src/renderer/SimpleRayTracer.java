@@ -1,12 +1,12 @@
 package renderer;
 
 import geometries.Intersectable.GeoPoint;
+import geometries.RayPacket;
 import lighting.*;
 import primitives.*;
 import scene.Scene;
 
-import java.util.List;
-import java.util.Random;
+import java.util.Arrays;
 
 import static java.lang.Math.*;
 import static primitives.Util.alignZero;
@@ -19,7 +19,6 @@ public class SimpleRayTracer extends RayTracerBase {
     private static final Double3 INITIAL_K = Double3.ONE;
     private static final int MAX_CALC_COLOR_LEVEL = 10;
     private static final double MIN_CALC_COLOR_K = 0.001;
-    private static final int NUM_SAMPLES = 4;
 
     /**
      * Constructs a SimpleRayTracer with the given scene.
@@ -33,7 +32,69 @@ public class SimpleRayTracer extends RayTracerBase {
     @Override
     public Color traceRay(Ray ray) {
         GeoPoint closestPoint = findClosestIntersection(ray);
-        return closestPoint == null ? scene.background : calcColor(closestPoint, ray);
+        return closestPoint == null ? scene.background : calcColor(closestPoint, ray, null);
+    }
+
+    /**
+     * Traces the rays as a packet: the closest intersections are found with a single traversal of the scene,
+     * and so are the shadow rays of the intersections toward every light source.
+     * The reflected and refracted rays are traced one by one.
+     *
+     * @param rays the rays to trace
+     * @return the colors of the rays, in the same order
+     */
+    @Override
+    public Color[] traceRays(Ray[] rays) {
+        RayPacket packet = new RayPacket(rays);
+        scene.geometries.findClosestGeoIntersections(packet);
+        Double3[][] shadows = shadowPackets(packet);
+
+        Color[] colors = new Color[rays.length];
+        for (int r = 0; r < rays.length; r++) {
+            GeoPoint gp = packet.getHit(r);
+            colors[r] = gp == null ? scene.background : calcColor(gp, rays[r], shadows[r]);
+        }
+        return colors;
+    }
+
+    /**
+     * Calculates the transparencies toward the light sources of the intersections of a packet,
+     * with one shadow packet per light source.
+     *
+     * @param packet the packet whose closest intersections were found
+     * @return the transparency of every light source for every ray - null where the light source
+     * does not contribute to the intersection
+     */
+    private Double3[][] shadowPackets(RayPacket packet) {
+        int size = packet.size();
+        Double3[][] shadows = new Double3[size][scene.lights.size()];
+        int[] indices = new int[size];
+        Ray[] lightRays = new Ray[size];
+        double[] distances = new double[size];
+
+        int light = 0;
+        for (LightSource lightSource : scene.lights) {
+            int count = 0;
+            for (int r = 0; r < size; r++) {
+                GeoPoint gp = packet.getHit(r);
+                if (gp == null) continue;
+                Vector n = gp.geometry.getNormal(gp.point);
+                Vector l = lightSource.getL(gp.point);
+                double nv = alignZero(n.dotProduct(packet.getRay(r).getDir()));
+                if (nv * alignZero(n.dotProduct(l)) <= 0) continue;
+                indices[count] = r;
+                lightRays[count] = new Ray(gp.point, l.scale(-1), n);
+                distances[count++] = lightSource.getDistance(gp.point);
+            }
+            if (count > 0) {
+                RayPacket shadowPacket = new RayPacket(Arrays.copyOf(lightRays, count), Arrays.copyOf(distances, count));
+                scene.geometries.findTransparencies(shadowPacket);
+                for (int s = 0; s < count; s++)
+                    shadows[indices[s]][light] = shadowPacket.getTransparency(s);
+            }
+            light++;
+        }
+        return shadows;
     }
 
     /**
@@ -41,10 +102,11 @@ public class SimpleRayTracer extends RayTracerBase {
      *
      * @param geopoint the intersection point
      * @param ray the ray that intersects the geometry
+     * @param shadows the transparencies toward the light sources found by a shadow packet, or null to trace the shadow rays
      * @return the color at the intersection point
      */
-    private Color calcColor(GeoPoint geopoint, Ray ray) {
-        return calcColor(geopoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K).add(scene.ambientLight.getIntensity());
+    private Color calcColor(GeoPoint geopoint, Ray ray, Double3[] shadows) {
+        return calcColor(geopoint, ray, MAX_CALC_COLOR_LEVEL, INITIAL_K, shadows).add(scene.ambientLight.getIntensity());
     }
 
     /**
@@ -54,10 +116,11 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param ray the ray that intersects the geometry
      * @param level the recursion level
      * @param k the attenuation factor
+     * @param shadows the transparencies toward the light sources found by a shadow packet, or null to trace the shadow rays
      * @return the color at the intersection point
      */
-    private Color calcColor(GeoPoint geopoint, Ray ray, int level, Double3 k) {
-        Color color = calcLocalEffects(geopoint, ray, k);
+    private Color calcColor(GeoPoint geopoint, Ray ray, int level, Double3 k, Double3[] shadows) {
+        Color color = calcLocalEffects(geopoint, ray, k, shadows);
         return 1 == level ? color : color.add(calcGlobalEffects(geopoint, ray, level, k));
     }
 
@@ -73,7 +136,7 @@ public class SimpleRayTracer extends RayTracerBase {
         double nv = v.dotProduct(n);
         if(nv == 0)
             return null;
-        Vector r = v.subtract(n.scale(2 * nv));
+        Vector r = VectorMath.reflect(v, n, nv);
         return new Ray(gp.point, r, n);
     }
 
@@ -119,7 +182,7 @@ public class SimpleRayTracer extends RayTracerBase {
         Double3 kkx = kx.product(k);
         if (kkx.lowerThan(MIN_CALC_COLOR_K)) return Color.BLACK;
         GeoPoint gp = findClosestIntersection(ray);
-        return gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx).scale(kx);
+        return gp == null ? scene.background : calcColor(gp, ray, level - 1, kkx, null).scale(kx);
     }
 
     /**
@@ -129,9 +192,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the closest intersection point, or null if no intersection is found
      */
     private GeoPoint findClosestIntersection(Ray ray) {
-//        return ray.findClosestGeoPoint(scene.geometries.findGeoIntersections(ray));
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(ray);
-        return ray.findClosestGeoPoint(intersections);
+        return scene.geometries.findClosestGeoIntersection(ray);
     }
 
     /**
@@ -140,9 +201,10 @@ public class SimpleRayTracer extends RayTracerBase {
      * @param geopoint the intersection point
      * @param ray the ray that intersects the geometry
      * @param k the attenuation factor
+     * @param shadows the transparencies toward the light sources found by a shadow packet, or null to trace the shadow rays
      * @return the color contribution from local effects
      */
-    private Color calcLocalEffects(GeoPoint geopoint, Ray ray, Double3 k) {
+    private Color calcLocalEffects(GeoPoint geopoint, Ray ray, Double3 k, Double3[] shadows) {
         Vector v = ray.getDir();
         Vector n = geopoint.geometry.getNormal(geopoint.point);
         double nv = alignZero(n.dotProduct(v));
@@ -151,18 +213,21 @@ public class SimpleRayTracer extends RayTracerBase {
 
         Material material = geopoint.geometry.getMaterial();
 
+        int light = 0;
         for (LightSource lightSource : scene.lights) {
             Vector l = lightSource.getL(geopoint.point);
             double nl = alignZero(n.dotProduct(l));
             if (nl * nv > 0) { // sign(nl) == sign(nv)
-                Double3 transparency = transparency(geopoint, lightSource, l, n);
+                Double3 transparency = shadows != null && shadows[light] != null ? shadows[light]
+                        : transparency(geopoint, lightSource, l, n);
                 if (transparency.product(k).greaterThan(MIN_CALC_COLOR_K)) {
                     Color lightIntensity = lightSource.getIntensity(geopoint.point).scale(transparency);
                     color = color.add(lightIntensity.scale(
-                            calcDiffusive(material,nl).add(calcSpecular(material,n,l,nl,v))
+                            calcDiffusive(material,nl).add(calcSpecular(material,l,nl,nv,v))
                     ));
                 }
             }
+            light++;
         }
         return color;
     }
@@ -179,25 +244,7 @@ public class SimpleRayTracer extends RayTracerBase {
     private Double3 transparency(GeoPoint gp, LightSource ls, Vector l, Vector n) {
         Vector lightDirection = l.scale(-1); // from point to light source
         Ray lightRay = new Ray(gp.point, lightDirection, n); // Use the new constructor
-
-        List<GeoPoint> intersections = scene.geometries.findGeoIntersections(lightRay);
-
-        if (intersections == null) {
-            return Double3.ONE;
-        }
-
-        Double3 ktr = Double3.ONE;
-        double lightDistance = ls.getDistance(gp.point);
-        for (GeoPoint intersection : intersections) {
-            if (alignZero(intersection.point.distance(gp.point) - lightDistance) <= 0) {
-                ktr = ktr.product(intersection.geometry.getMaterial().kT);
-                if (ktr.equals(Double3.ZERO)) {
-                    break;
-                }
-            }
-        }
-
-        return ktr;
+        return scene.geometries.findTransparency(lightRay, ls.getDistance(gp.point), Double3.ONE);
     }
 
     /**
@@ -214,39 +261,18 @@ public class SimpleRayTracer extends RayTracerBase {
     /**
      * Calculates the specular component of the color at the intersection point.
      *
+     * The reflection of the light direction, r = l - 2(n*l)n, is not built - its dot product with
+     * the ray direction is expanded to v*r = v*l - 2(n*l)(n*v).
+     *
      * @param material the material of the intersected geometry
-     * @param n the normal vector at the intersection point
      * @param l the direction vector to the light source
      * @param nl the dot product of the normal vector and the light direction vector
+     * @param nv the dot product of the normal vector and the ray direction vector
      * @param v the direction vector of the ray
      * @return the specular color component
      */
-    private Double3 calcSpecular(Material material, Vector n, Vector l, double nl, Vector v) {
-        Vector reflectVector = l.subtract(n.scale(nl * 2));
-        double minusVR = -alignZero(v.dotProduct(reflectVector));
+    private Double3 calcSpecular(Material material, Vector l, double nl, double nv, Vector v) {
+        double minusVR = -alignZero(v.dotProduct(l) - 2 * nl * nv);
         return minusVR <= 0 ? Double3.ZERO : material.kS.scale(pow(minusVR, material.nShininess));
     }
-
-    /**
-     * Calculates the color of a pixel using anti-aliasing by shooting multiple rays per pixel and averaging the colors.
-     *
-     * @param centerRay the center ray of the pixel
-     * @return the averaged color of the pixel
-     */
-    public Color calcColorWithAntiAliasing(Ray centerRay) {
-        Color finalColor = Color.BLACK;
-        Random rand = new Random();
-        for (int i = 0; i < NUM_SAMPLES; i++) {
-            // Generate random offset for the ray
-            double offsetX = rand.nextDouble() - 0.5;
-            double offsetY = rand.nextDouble() - 0.5;
-            // Create a new ray with the offset
-            Ray offsetRay = centerRay.createWithOffset(offsetX, offsetY);
-            // Trace the offset ray and add the color to the final color
-            finalColor = finalColor.add(traceRay(offsetRay));
-        }
-        // Average the color by the number of samples
-        return finalColor.reduce(NUM_SAMPLES);
-    }
 }
-
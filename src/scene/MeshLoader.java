@@ -0,0 +1,575 @@
+package scene;
+
+import geometries.TriangleMesh;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The MeshLoader class loads triangle meshes from model files into {@link TriangleMesh} objects.
+ * Wavefront OBJ files are streamed line by line, and binary PLY files are read through a memory-mapped
+ * file channel. In both cases the vertex positions and the faces go straight into primitive buffers,
+ * without creating a Point per vertex. Polygons with more than three vertices are split into triangle fans.
+ * The throughput and the size of the loaded buffers are reported to the log.
+ */
+public final class MeshLoader {
+
+    /**
+     * Logger for reporting the load statistics and I/O failures
+     */
+    private static final Logger logger = Logger.getLogger("MeshLoader");
+
+    /**
+     * Don't let anyone instantiate this class.
+     */
+    private MeshLoader() {
+    }
+
+    /**
+     * Loads a mesh from a model file, by the extension of the file - ".obj" or ".ply".
+     *
+     * @param path the path of the model file
+     * @return the mesh
+     * @throws IllegalArgumentException if the format of the file is not supported or the file is malformed
+     * @throws IllegalStateException    in case of an I/O error
+     */
+    public static TriangleMesh load(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".obj")) return loadObj(path);
+        if (name.endsWith(".ply")) return loadPly(path);
+        throw new IllegalArgumentException("Unsupported model format: " + path);
+    }
+
+    /**
+     * Loads a mesh from a Wavefront OBJ file.
+     * Only the vertex ("v") and face ("f") statements are used - texture coordinates, normals, groups and
+     * materials are ignored. Face indices may be negative (relative to the end of the vertices read so far)
+     * and may carry texture and normal indices ("v/vt/vn").
+     *
+     * @param path the path of the OBJ file
+     * @return the mesh
+     * @throws IllegalArgumentException if the file is malformed
+     * @throws IllegalStateException    in case of an I/O error
+     */
+    public static TriangleMesh loadObj(Path path) {
+        long start = System.nanoTime();
+        DoubleBuffer positions = new DoubleBuffer();
+        IntBuffer indices = new IntBuffer();
+        int[] polygon = new int[16];
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                Tokenizer tokens = new Tokenizer(line);
+                String keyword = tokens.next();
+                if ("v".equals(keyword)) {
+                    for (int axis = 0; axis < 3; ++axis) {
+                        String token = tokens.next();
+                        if (token == null) throw new IllegalArgumentException(path + ":" + lineNumber + ": incomplete vertex");
+                        positions.add(Double.parseDouble(token));
+                    }
+                } else if ("f".equals(keyword)) {
+                    int vertexCount = positions.size / 3;
+                    int count = 0;
+                    for (String token = tokens.next(); token != null; token = tokens.next()) {
+                        int slash = token.indexOf('/');
+                        int index = Integer.parseInt(slash < 0 ? token : token.substring(0, slash));
+                        index = index < 0 ? vertexCount + index : index - 1;
+                        if (index < 0 || index >= vertexCount)
+                            throw new IllegalArgumentException(path + ":" + lineNumber + ": vertex index out of range");
+                        if (count == polygon.length) polygon = Arrays.copyOf(polygon, count * 2);
+                        polygon[count++] = index;
+                    }
+                    if (count < 3) throw new IllegalArgumentException(path + ":" + lineNumber + ": face with less than 3 vertices");
+                    addFan(indices, polygon, count);
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error while reading " + path, e);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed number in " + path, e);
+        }
+
+        return createMesh(path, positions.toArray(), indices.toArray(), start);
+    }
+
+    /**
+     * Loads a mesh from a binary PLY file (little or big endian), through a memory-mapped file channel.
+     * The x, y and z properties of the "vertex" element and the first list property of the "face" element
+     * are used - any other scalar properties and elements are skipped.
+     *
+     * @param path the path of the PLY file
+     * @return the mesh
+     * @throws IllegalArgumentException if the file is not a binary PLY file or is malformed
+     * @throws IllegalStateException    in case of an I/O error
+     */
+    public static TriangleMesh loadPly(Path path) {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("PLY file is too large to be mapped: " + path);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            PlyHeader header = PlyHeader.read(buffer, path);
+            buffer.order(header.order);
+
+            double[] positions = null;
+            IntBuffer indices = new IntBuffer();
+            int[] polygon = new int[16];
+            for (PlyElement element : header.elements) {
+                if (element.name.equals("vertex")) {
+                    int x = element.indexOf("x"), y = element.indexOf("y"), z = element.indexOf("z");
+                    if (x < 0 || y < 0 || z < 0)
+                        throw new IllegalArgumentException("PLY vertex element without x, y, z: " + path);
+                    if (element.stride < 0)
+                        throw new IllegalArgumentException("PLY vertex element with list properties: " + path);
+                    positions = new double[Math.multiplyExact(element.count, 3)];
+                    for (int v = 0; v < element.count; ++v) {
+                        int base = buffer.position();
+                        positions[v * 3] = element.read(buffer, base, x);
+                        positions[v * 3 + 1] = element.read(buffer, base, y);
+                        positions[v * 3 + 2] = element.read(buffer, base, z);
+                        buffer.position(base + element.stride);
+                    }
+                } else if (element.name.equals("face")) {
+                    if (positions == null)
+                        throw new IllegalArgumentException("PLY faces before vertices: " + path);
+                    int vertexCount = positions.length / 3;
+                    PlyProperty list = element.list;
+                    if (list == null) throw new IllegalArgumentException("PLY face element without a list: " + path);
+                    for (int f = 0; f < element.count; ++f) {
+                        for (PlyProperty property : element.properties) {
+                            if (property.countType == null) {
+                                buffer.position(buffer.position() + property.type.size);
+                                continue;
+                            }
+                            int count = (int) property.countType.read(buffer);
+                            if (property != list) {
+                                buffer.position(buffer.position() + count * property.type.size);
+                                continue;
+                            }
+                            if (count < 3) throw new IllegalArgumentException("PLY face with less than 3 vertices: " + path);
+                            if (count > polygon.length) polygon = new int[count];
+                            for (int k = 0; k < count; ++k) {
+                                int index = (int) property.type.read(buffer);
+                                if (index < 0 || index >= vertexCount)
+                                    throw new IllegalArgumentException("PLY vertex index out of range: " + path);
+                                polygon[k] = index;
+                            }
+                            addFan(indices, polygon, count);
+                        }
+                    }
+                } else {
+                    element.skip(buffer, path);
+                }
+            }
+            if (positions == null) throw new IllegalArgumentException("PLY file without vertices: " + path);
+            return createMesh(path, positions, indices.toArray(), start);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "I/O error", e);
+            throw new IllegalStateException("I/O error while reading " + path, e);
+        } catch (java.nio.BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("PLY file is truncated: " + path, e);
+        }
+    }
+
+    /**
+     * Splits a polygon into a fan of triangles around its first vertex and adds them to the index buffer.
+     *
+     * @param indices the index buffer
+     * @param polygon the vertex indices of the polygon
+     * @param count   the number of vertices of the polygon
+     */
+    private static void addFan(IntBuffer indices, int[] polygon, int count) {
+        for (int k = 1; k + 1 < count; ++k) {
+            indices.add(polygon[0]);
+            indices.add(polygon[k]);
+            indices.add(polygon[k + 1]);
+        }
+    }
+
+    /**
+     * Creates the mesh from the loaded buffers and reports the load statistics.
+     *
+     * @param path      the path of the model file
+     * @param positions the vertex positions
+     * @param indices   the index buffer
+     * @param start     the start time of the load, by {@link System#nanoTime()}
+     * @return the mesh
+     */
+    private static TriangleMesh createMesh(Path path, double[] positions, int[] indices, long start) {
+        long parsed = System.nanoTime();
+        TriangleMesh mesh = new TriangleMesh(positions, indices);
+        long built = System.nanoTime();
+
+        if (logger.isLoggable(Level.INFO)) {
+            double fileMb = 0;
+            try {
+                fileMb = Files.size(path) / 1e6;
+            } catch (IOException ignored) {
+                // the size is only reported
+            }
+            double parseSeconds = (parsed - start) / 1e9;
+            Runtime runtime = Runtime.getRuntime();
+            logger.info(String.format(Locale.ROOT,
+                    "Loaded %s: %d vertices, %d faces - parsed in %.3f s (%.1f MB/s, %.0f faces/s), "
+                            + "hierarchy built in %.3f s, buffers %.1f MB, heap used %.1f MB",
+                    path.getFileName(), positions.length / 3, indices.length / 3,
+                    parseSeconds, fileMb / parseSeconds, indices.length / 3 / parseSeconds,
+                    (built - parsed) / 1e9, (positions.length * 8L + indices.length * 4L) / 1e6,
+                    (runtime.totalMemory() - runtime.freeMemory()) / 1e6));
+        }
+        return mesh;
+    }
+
+    /**
+     * Splits a line into whitespace separated tokens, without regular expressions.
+     */
+    private static class Tokenizer {
+        private final String line;
+        private int position = 0;
+
+        /**
+         * Constructs a tokenizer over a line.
+         *
+         * @param line the line
+         */
+        Tokenizer(String line) {
+            this.line = line;
+        }
+
+        /**
+         * Gets the next token, stopping at a comment.
+         *
+         * @return the next token, or null at the end of the line
+         */
+        String next() {
+            int length = line.length();
+            while (position < length && Character.isWhitespace(line.charAt(position))) ++position;
+            if (position == length || line.charAt(position) == '#') return null;
+            int begin = position;
+            while (position < length && !Character.isWhitespace(line.charAt(position))) ++position;
+            return line.substring(begin, position);
+        }
+    }
+
+    /**
+     * A growable buffer of doubles.
+     */
+    private static class DoubleBuffer {
+        private double[] data = new double[1024];
+        private int size = 0;
+
+        /**
+         * Adds a value at the end of the buffer.
+         *
+         * @param value the value
+         */
+        void add(double value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        /**
+         * Gets the values in the buffer.
+         *
+         * @return an array of the values
+         */
+        double[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * A growable buffer of integers.
+     */
+    private static class IntBuffer {
+        private int[] data = new int[1024];
+        private int size = 0;
+
+        /**
+         * Adds a value at the end of the buffer.
+         *
+         * @param value the value
+         */
+        void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        /**
+         * Gets the values in the buffer.
+         *
+         * @return an array of the values
+         */
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * The scalar types of the PLY format.
+     */
+    private enum PlyType {
+        CHAR(1), UCHAR(1), SHORT(2), USHORT(2), INT(4), UINT(4), FLOAT(4), DOUBLE(8);
+
+        /**
+         * The size of a value of the type, in bytes.
+         */
+        final int size;
+
+        PlyType(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Parses a type name of the PLY header, in both the old and the sized spellings.
+         *
+         * @param name the type name
+         * @return the type
+         * @throws IllegalArgumentException if the name is not a PLY type
+         */
+        static PlyType parse(String name) {
+            return switch (name) {
+                case "char", "int8" -> CHAR;
+                case "uchar", "uint8" -> UCHAR;
+                case "short", "int16" -> SHORT;
+                case "ushort", "uint16" -> USHORT;
+                case "int", "int32" -> INT;
+                case "uint", "uint32" -> UINT;
+                case "float", "float32" -> FLOAT;
+                case "double", "float64" -> DOUBLE;
+                default -> throw new IllegalArgumentException("Unknown PLY type: " + name);
+            };
+        }
+
+        /**
+         * Reads a value of the type at the position of the buffer, advancing the position.
+         *
+         * @param buffer the buffer
+         * @return the value
+         */
+        double read(MappedByteBuffer buffer) {
+            return switch (this) {
+                case CHAR -> buffer.get();
+                case UCHAR -> buffer.get() & 0xFF;
+                case SHORT -> buffer.getShort();
+                case USHORT -> buffer.getShort() & 0xFFFF;
+                case INT -> buffer.getInt();
+                case UINT -> buffer.getInt() & 0xFFFFFFFFL;
+                case FLOAT -> buffer.getFloat();
+                case DOUBLE -> buffer.getDouble();
+            };
+        }
+
+        /**
+         * Reads a value of the type at an absolute index of the buffer, without moving its position.
+         *
+         * @param buffer the buffer
+         * @param index  the index of the value
+         * @return the value
+         */
+        double read(MappedByteBuffer buffer, int index) {
+            return switch (this) {
+                case CHAR -> buffer.get(index);
+                case UCHAR -> buffer.get(index) & 0xFF;
+                case SHORT -> buffer.getShort(index);
+                case USHORT -> buffer.getShort(index) & 0xFFFF;
+                case INT -> buffer.getInt(index);
+                case UINT -> buffer.getInt(index) & 0xFFFFFFFFL;
+                case FLOAT -> buffer.getFloat(index);
+                case DOUBLE -> buffer.getDouble(index);
+            };
+        }
+    }
+
+    /**
+     * A property of a PLY element - a scalar, or a list with a count type and a value type.
+     */
+    private static class PlyProperty {
+        final String name;
+        final PlyType type;
+        final PlyType countType;
+        final int offset;
+
+        /**
+         * Constructs a property.
+         *
+         * @param name      the name of the property
+         * @param type      the type of the value, or of the list items
+         * @param countType the type of the list count, null for a scalar
+         * @param offset    the offset of a scalar in the element, -1 after a list
+         */
+        PlyProperty(String name, PlyType type, PlyType countType, int offset) {
+            this.name = name;
+            this.type = type;
+            this.countType = countType;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * An element of a PLY file - a number of records of the same properties.
+     */
+    private static class PlyElement {
+        final String name;
+        final int count;
+        final List<PlyProperty> properties = new ArrayList<>();
+        PlyProperty list = null;
+        int stride = 0;
+
+        /**
+         * Constructs an element.
+         *
+         * @param name  the name of the element
+         * @param count the number of records
+         */
+        PlyElement(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        /**
+         * Adds a property to the element.
+         *
+         * @param property the property
+         */
+        void add(PlyProperty property) {
+            properties.add(property);
+            if (property.countType != null) {
+                if (list == null) list = property;
+                stride = -1;
+            } else if (stride >= 0) {
+                stride += property.type.size;
+            }
+        }
+
+        /**
+         * Finds a scalar property of fixed offset.
+         *
+         * @param name the name of the property
+         * @return the index of the property, or -1 if there is none
+         */
+        int indexOf(String name) {
+            for (int i = 0; i < properties.size(); ++i) {
+                PlyProperty property = properties.get(i);
+                if (property.name.equals(name) && property.countType == null && property.offset >= 0) return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Reads a scalar property of a record.
+         *
+         * @param buffer   the buffer
+         * @param base     the position of the record
+         * @param property the index of the property
+         * @return the value
+         */
+        double read(MappedByteBuffer buffer, int base, int property) {
+            PlyProperty p = properties.get(property);
+            return p.type.read(buffer, base + p.offset);
+        }
+
+        /**
+         * Skips all the records of the element.
+         *
+         * @param buffer the buffer, positioned at the first record
+         * @param path   the path of the file, for error messages
+         */
+        void skip(MappedByteBuffer buffer, Path path) {
+            if (stride >= 0) {
+                buffer.position(buffer.position() + Math.multiplyExact(count, stride));
+                return;
+            }
+            for (int r = 0; r < count; ++r)
+                for (PlyProperty property : properties) {
+                    int items = property.countType == null ? 1 : (int) property.countType.read(buffer);
+                    buffer.position(buffer.position() + items * property.type.size);
+                }
+        }
+    }
+
+    /**
+     * The header of a binary PLY file.
+     */
+    private static class PlyHeader {
+        ByteOrder order;
+        final List<PlyElement> elements = new ArrayList<>();
+
+        /**
+         * Reads the header, leaving the buffer positioned at the first record.
+         *
+         * @param buffer the buffer, positioned at the start of the file
+         * @param path   the path of the file, for error messages
+         * @return the header
+         * @throws IllegalArgumentException if the file is not a binary PLY file or the header is malformed
+         */
+        static PlyHeader read(MappedByteBuffer buffer, Path path) {
+            PlyHeader header = new PlyHeader();
+            if (!"ply".equals(readLine(buffer)))
+                throw new IllegalArgumentException("Not a PLY file: " + path);
+
+            PlyElement element = null;
+            for (String line = readLine(buffer); !"end_header".equals(line); line = readLine(buffer)) {
+                if (line == null) throw new IllegalArgumentException("PLY header without end_header: " + path);
+                Tokenizer tokens = new Tokenizer(line);
+                String keyword = tokens.next();
+                if ("format".equals(keyword)) {
+                    String format = tokens.next();
+                    if ("binary_little_endian".equals(format)) header.order = ByteOrder.LITTLE_ENDIAN;
+                    else if ("binary_big_endian".equals(format)) header.order = ByteOrder.BIG_ENDIAN;
+                    else throw new IllegalArgumentException("Unsupported PLY format " + format + ": " + path);
+                } else if ("element".equals(keyword)) {
+                    element = new PlyElement(tokens.next(), Integer.parseInt(tokens.next()));
+                    header.elements.add(element);
+                } else if ("property".equals(keyword)) {
+                    if (element == null) throw new IllegalArgumentException("PLY property before element: " + path);
+                    String type = tokens.next();
+                    if ("list".equals(type)) {
+                        PlyType countType = PlyType.parse(tokens.next());
+                        PlyType itemType = PlyType.parse(tokens.next());
+                        element.add(new PlyProperty(tokens.next(), itemType, countType, -1));
+                    } else {
+                        element.add(new PlyProperty(tokens.next(), PlyType.parse(type), null, element.stride));
+                    }
+                }
+            }
+            if (header.order == null) throw new IllegalArgumentException("PLY header without format: " + path);
+            return header;
+        }
+
+        /**
+         * Reads an ASCII line of the header.
+         *
+         * @param buffer the buffer
+         * @return the line without its line break, or null at the end of the buffer
+         */
+        private static String readLine(MappedByteBuffer buffer) {
+            if (!buffer.hasRemaining()) return null;
+            StringBuilder line = new StringBuilder();
+            while (buffer.hasRemaining()) {
+                char c = (char) buffer.get();
+                if (c == '\n') break;
+                if (c != '\r') line.append(c);
+            }
+            return line.toString().trim();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing AABB class
+ */
+class AABBTests {
+
+    private final AABB box = new AABB(new Point(-1, -1, -3), new Point(1, 1, -1));
+
+    /**
+     * Test method for {@link geometries.AABB#entryDistance(Ray, double, double)}.
+     */
+    @Test
+    void testEntryDistance() {
+        final double inf = Double.POSITIVE_INFINITY;
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Oblique ray enters the box through its top face
+        assertEquals(1.25, box.entryDistance(new Ray(Point.ZERO, new Vector(0.48, 0.36, -0.8)), 0, inf), 1e-10,
+                "Wrong entry distance");
+
+        // TC02: Ray misses the box
+        assertEquals(inf, box.entryDistance(new Ray(new Point(2, 0, 0), new Vector(0, 0, -1)), 0, inf),
+                "Ray must miss the box");
+
+        // TC03: Ray starts inside the box
+        assertEquals(0, box.entryDistance(new Ray(new Point(0, 0, -2), new Vector(1, 1, 1)), 0, inf), 1e-10,
+                "Entry distance of a ray starting inside must be tMin");
+
+        // TC04: Box is behind the ray
+        assertFalse(box.intersects(new Ray(Point.ZERO, new Vector(0, 0, 1)), 0, inf), "Box is behind the ray");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Axis-parallel ray starting on the plane of a slab (0 * infinity)
+        assertTrue(box.intersects(new Ray(new Point(1, 0, 0), new Vector(0, 0, -1)), 0, inf),
+                "Ray on the box face must not be culled");
+
+        // TC12: Box beyond the end of the interval
+        assertFalse(box.intersects(new Ray(Point.ZERO, new Vector(0, 0, -1)), 0, 0.5), "Box is beyond tMax");
+
+        // TC13: Negative direction coordinates
+        assertEquals(1, box.entryDistance(new Ray(new Point(0, 2, -2), new Vector(0, -1, 0)), 0, inf), 1e-10,
+                "Wrong entry distance for a negative direction");
+
+        // TC14: Axis-parallel ray enters the box (infinite reciprocal directions on the other axes)
+        assertEquals(1, box.entryDistance(new Ray(new Point(0.5, 0.5, 0), new Vector(0, 0, -1)), 0, inf), 1e-10,
+                "Wrong entry distance for an axis-parallel ray");
+    }
+}
@@ -0,0 +1,102 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing BVHNode class
+ */
+class BVHNodeTests {
+
+    /**
+     * Checks that two hierarchies have the same structure over the same objects.
+     *
+     * @param expected the expected hierarchy - a BVHNode or an object
+     * @param actual   the actual hierarchy
+     */
+    private static void assertSameTree(Intersectable expected, Intersectable actual) {
+        if (expected instanceof BVHNode node) {
+            BVHNode other = assertInstanceOf(BVHNode.class, actual, "Wrong structure");
+            assertEquals(node.getBoundingBox().getMin(), other.getBoundingBox().getMin(), "Wrong node bounds");
+            assertEquals(node.getBoundingBox().getMax(), other.getBoundingBox().getMax(), "Wrong node bounds");
+            assertSameTree(node.getLeft(), other.getLeft());
+            assertSameTree(node.getRight(), other.getRight());
+        } else {
+            assertSame(expected, actual, "Wrong object in a leaf");
+        }
+    }
+
+    /**
+     * Collects the objects in the leaves of a hierarchy.
+     *
+     * @param node    the hierarchy - a BVHNode or an object
+     * @param objects the collected objects
+     * @return the collected objects
+     */
+    private static List<Intersectable> leaves(Intersectable node, List<Intersectable> objects) {
+        if (node instanceof BVHNode bvh) {
+            leaves(bvh.getLeft(), objects);
+            if (bvh.getRight() != null) leaves(bvh.getRight(), objects);
+        } else {
+            objects.add(node);
+        }
+        return objects;
+    }
+
+    /**
+     * Test method for {@link geometries.BVHNode#BVHNode(List)}.
+     */
+    @Test
+    void testSAHSplit() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Two separated clusters of different sizes - a median split would put half of the large cluster
+        // with the small one, so both children would span the gap; the SAH split separates the clusters
+        List<Intersectable> large = new ArrayList<>(), small = new ArrayList<>(), spheres = new ArrayList<>();
+        for (int i = 1; i <= 9; ++i) {
+            large.add(new Sphere(new Point(i % 3, i / 3, 0), 1 + i % 4));
+            if (i <= 3) small.add(new Sphere(new Point(100, i, 0), i));
+        }
+        for (int i = 0; i < 9; ++i) {
+            spheres.add(large.get(i));
+            if (i < 3) spheres.add(small.get(i));
+        }
+        BVHNode root = new BVHNode(spheres);
+        AABB leftBox = root.getLeft().getBoundingBox(), rightBox = root.getRight().getBoundingBox();
+        assertTrue(leftBox.getMax().getX() < rightBox.getMin().getX()
+                        || rightBox.getMax().getX() < leftBox.getMin().getX(),
+                "Children of separated clusters must not overlap");
+        List<Intersectable> left = leaves(root.getLeft(), new ArrayList<>());
+        assertTrue(left.containsAll(large) && left.size() == large.size()
+                        || left.containsAll(small) && left.size() == small.size(),
+                "Every child must hold a single cluster");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Objects with the same centroid cannot be separated, but are all kept
+        List<Intersectable> concentric = new ArrayList<>();
+        for (int i = 1; i <= 10; ++i)
+            concentric.add(new Sphere(Point.ZERO, i));
+        assertEquals(10, leaves(new BVHNode(concentric), new ArrayList<>()).size(), "Objects must not be lost");
+    }
+
+    /**
+     * Test method for {@link geometries.BVHNode#BVHNode(List, boolean)}.
+     */
+    @Test
+    void testParallelBuild() {
+        // TC01: A parallel build gives the same hierarchy as a sequential one - the input is just large enough
+        // for both the forked subtrees and the parallel binning
+        Random random = new Random(4);
+        List<Intersectable> spheres = new ArrayList<>();
+        int count = Math.max(BinnedSAH.FORK_THRESHOLD, BinnedSAH.PARALLEL_BINNING_THRESHOLD) + 1;
+        for (int i = 0; i < count; ++i)
+            spheres.add(new Sphere(new Point(random.nextDouble() * 1000, random.nextDouble() * 1000,
+                    random.nextDouble() * 100), 0.5 + random.nextDouble()));
+        assertSameTree(new BVHNode(spheres, false), new BVHNode(spheres, true));
+    }
+}
@@ -0,0 +1,151 @@
+package geometries;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Transform;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing FlatBVH class
+ */
+class FlatBVHTests {
+
+    /**
+     * Builds a scene of 400 spheres in four groups, like the spheres test scene.
+     * Shared with the tests of the other compiled forms of the hierarchy.
+     *
+     * @return the spheres
+     */
+    static List<Intersectable> spheres() {
+        List<Intersectable> spheres = new ArrayList<>();
+        Point[] centers = {new Point(-50, 50, -100), new Point(50, 50, -100),
+                new Point(50, -50, -100), new Point(-50, -50, -100)};
+        for (Point center : centers)
+            for (int i = 1; i <= 100; ++i)
+                spheres.add(new Sphere(center.add(new Vector(i % 7 - 3, i % 5 - 2, i % 3 - 1.5)), 1 + i % 9));
+        return spheres;
+    }
+
+    /**
+     * Builds random rays from the camera position towards the spheres.
+     *
+     * @param count the number of rays
+     * @return the rays
+     */
+    static Ray[] rays(int count) {
+        Random random = new Random(1);
+        Ray[] rays = new Ray[count];
+        for (int i = 0; i < count; ++i)
+            rays[i] = new Ray(Point.ZERO, new Vector(random.nextDouble() * 200 - 100, random.nextDouble() * 160 - 80, -100));
+        return rays;
+    }
+
+    /**
+     * Test method for {@link geometries.FlatBVH#findClosestGeoIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        BVHNode tree = new BVHNode(spheres());
+        FlatBVH flat = new FlatBVH(tree);
+
+        // TC01: Same closest intersections and transparency as the linked hierarchy
+        for (Ray ray : rays(2000)) {
+            assertEquals(tree.findClosestGeoIntersection(ray), flat.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection");
+            List<Point> treePoints = tree.findIntersections(ray);
+            List<Point> flatPoints = flat.findIntersections(ray);
+            assertEquals(treePoints == null ? 0 : treePoints.size(), flatPoints == null ? 0 : flatPoints.size(),
+                    "Wrong number of intersections");
+            assertEquals(tree.findTransparency(ray, 200, Double3.ONE), flat.findTransparency(ray, 200, Double3.ONE),
+                    "Wrong transparency");
+        }
+
+        // TC02: The front-to-back traversal finds the nearest of all the intersections
+        for (Ray ray : rays(2000)) {
+            List<Point> points = flat.findIntersections(ray);
+            Intersectable.GeoPoint closest = flat.findClosestGeoIntersection(ray);
+            assertEquals(ray.findClosestPoint(points), closest == null ? null : closest.point,
+                    "Wrong front-to-back closest intersection");
+        }
+    }
+
+    /**
+     * Benchmark of the closest intersection queries of FlatBVH against BVHNode.
+     * Not part of the unit tests - run it explicitly.
+     */
+    @Test
+    @Tag("benchmark")
+    @Disabled("Benchmark - run explicitly")
+    void benchmarkFindClosestGeoIntersection() {
+        BVHNode tree = new BVHNode(spheres());
+        FlatBVH flat = new FlatBVH(tree);
+        Ray[] rays = rays(200000);
+
+        for (int round = 0; round < 3; ++round) {
+            long startTime = System.currentTimeMillis();
+            for (Ray ray : rays) tree.findClosestGeoIntersection(ray);
+            long treeTime = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            for (Ray ray : rays) flat.findClosestGeoIntersection(ray);
+            long flatTime = System.currentTimeMillis() - startTime;
+
+            System.out.println("BVHNode: " + treeTime + " ms, FlatBVH: " + flatTime + " ms");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.FlatBVH#refit(List)}.
+     */
+    @Test
+    void testRefit() {
+        Sphere unitSphere = new Sphere(Point.ZERO, 1);
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 200; ++i)
+            instances.add(new Instance(unitSphere,
+                    Transform.translation(new Vector(i % 20 * 10 - 95, i / 20 * 8 - 40, -100))));
+        FlatBVH flat = new FlatBVH(new BVHNode(new ArrayList<>(instances)));
+        assertEquals(1, flat.getSahDegradation(), 1e-12, "Fresh hierarchy must not be degraded");
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Refitting the moved instances only gives the same intersections as a new hierarchy
+        List<Instance> moved = new ArrayList<>();
+        for (int i = 0; i < 200; i += 10) {
+            Instance instance = instances.get(i);
+            instance.setTransform(instance.getTransform().then(Transform.translation(new Vector(3, 2, 5))));
+            moved.add(instance);
+        }
+        flat.refit(moved);
+        FlatBVH fresh = new FlatBVH(new BVHNode(new ArrayList<>(instances)));
+        for (Ray ray : rays(2000)) {
+            var expected = fresh.findClosestGeoIntersection(ray);
+            var found = flat.findClosestGeoIntersection(ray);
+            assertEquals(expected == null ? null : expected.point, found == null ? null : found.point,
+                    "Wrong closest intersection after refit");
+        }
+        assertEquals(fresh.getBoundingBox().getMax(), flat.getBoundingBox().getMax(), "Wrong root box after refit");
+
+        // TC02: Scattering all the instances degrades the refit hierarchy
+        Random random = new Random(2);
+        for (Instance instance : instances)
+            instance.setTransform(Transform.translation(
+                    new Vector(random.nextDouble() * 200 - 100, random.nextDouble() * 160 - 80, -100)));
+        flat.refit();
+        assertTrue(flat.getSahDegradation() > 1.5, "Scattered instances must degrade the hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A geometry that is not in the hierarchy
+        assertThrows(IllegalArgumentException.class, () -> flat.refit(List.of(unitSphere)),
+                "Unknown geometry must be rejected");
+    }
+}
@@ -1,12 +1,21 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
+import primitives.Transform;
 import primitives.Vector;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class GeometriesTests {
     @Test
@@ -58,4 +67,177 @@ class GeometriesTests {
                                 new Vector(-2, -1, 0.5))).size(),
                 "Must be three intersections. (2 in sphere, 1 in plane)");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link geometries.Geometries#build()}.
+     */
+    @Test
+    void testBuild() {
+        Geometries geometries = new Geometries();
+
+        // TC11: Empty collection
+        assertEquals(0, geometries.build().getNodeCount(), "Empty collection must have no nodes");
+
+        // TC01: Geometries added one at a time form a single balanced hierarchy
+        for (int i = 0; i < 10; ++i)
+            for (int j = 0; j < 10; ++j)
+                geometries.add(new Sphere(new Point(i * 3, j * 3, -10), 1));
+        geometries.build();
+        assertEquals(99, geometries.getNodeCount(), "Wrong number of nodes");
+        assertTrue(geometries.getDepth() <= 10, "Hierarchy is too deep: " + geometries.getDepth());
+
+        // TC02: Adding after the build rebuilds the hierarchy
+        geometries.add(new Sphere(new Point(50, 50, -10), 1));
+        assertEquals(2, geometries.findIntersections(new Ray(new Point(50, 50, 0), new Vector(0, 0, -1))).size(),
+                "Added geometry must be intersected");
+        assertEquals(100, geometries.getNodeCount(), "Wrong number of nodes after rebuild");
+
+        // TC03: An unbounded geometry is kept out of the hierarchy
+        geometries.add(new Plane(new Point(0, 0, -20), new Vector(0, 0, 1)));
+        assertEquals(1, geometries.getUnboundedCount(), "Plane must be kept out of the hierarchy");
+        assertEquals(100, geometries.getNodeCount(), "Plane must not add nodes to the hierarchy");
+        assertFalse(geometries.getBoundingBox().isFinite(), "Bounds of the collection must include the plane");
+        assertEquals(3, geometries.findIntersections(new Ray(new Point(50, 50, 0), new Vector(0, 0, -1))).size(),
+                "Both the hierarchy and the plane must be intersected");
+
+        // TC04: A nested collection holding an unbounded geometry is kept out of the hierarchy as a whole
+        Geometries nested = new Geometries(new Sphere(new Point(0, 0, -50), 1),
+                new Plane(new Point(0, 0, -60), new Vector(0, 0, 1)));
+        Geometries outer = new Geometries(new Sphere(new Point(10, 0, -50), 1), nested);
+        assertEquals(1, outer.getUnboundedCount(), "Nested collection must be kept out of the hierarchy");
+        assertEquals(3, outer.findIntersections(new Ray(Point.ZERO, new Vector(0, 0, -1))).size(),
+                "Both the sphere and the plane of the nested collection must be intersected");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findClosestGeoIntersection(Ray, double, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Sphere sphere = new Sphere(new Point(0, 0, -10), 2);
+        Triangle triangle = new Triangle(new Point(-5, -5, -4), new Point(5, -5, -4), new Point(0, 5, -4));
+        Plane plane = new Plane(new Point(0, 0, -20), new Vector(0, 0, 1));
+        Geometries geometries = new Geometries(sphere, triangle, plane);
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Closest of all the intersections
+        Intersectable.GeoPoint closest = geometries.findClosestGeoIntersection(ray);
+        assertEquals(triangle, closest.geometry, "Wrong closest geometry");
+        assertEquals(new Point(0, 0, -4), closest.point, "Wrong closest point");
+
+        // TC02: Interval starting after the closest intersection
+        closest = geometries.findClosestGeoIntersection(ray, 5, Double.POSITIVE_INFINITY);
+        assertEquals(new Point(0, 0, -8), closest.point, "Wrong closest point after tMin");
+
+        // TC03: Interval ending before the farthest intersection
+        closest = geometries.findClosestGeoIntersection(ray, 10, 15);
+        assertEquals(new Point(0, 0, -12), closest.point, "Wrong closest point inside the interval");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No intersection inside the interval
+        assertNull(geometries.findClosestGeoIntersection(ray, 12.5, 19), "Must not be intersections");
+
+        // TC12: Empty collection
+        assertNull(new Geometries().findClosestGeoIntersection(ray), "Must not be intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#findTransparency(Ray, double, Double3)}.
+     */
+    @Test
+    void testFindTransparency() {
+        Geometry glass = new Triangle(new Point(-5, -5, -4), new Point(5, -5, -4), new Point(0, 5, -4))
+                .setMaterial(new Material().setKt(0.5));
+        Geometry wall = new Plane(new Point(0, 0, -20), new Vector(0, 0, 1));
+        Geometries geometries = new Geometries(glass, wall);
+        Ray ray = new Ray(Point.ZERO, new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Only the transparent geometry is before the light
+        assertEquals(new Double3(0.5), geometries.findTransparency(ray, 10, Double3.ONE),
+                "Wrong transparency through the glass");
+
+        // TC02: An opaque geometry is before the light
+        assertEquals(Double3.ZERO, geometries.findTransparency(ray, 30, Double3.ONE),
+                "Opaque geometry must block the light");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: All the geometries are beyond the light
+        assertEquals(Double3.ONE, geometries.findTransparency(ray, 2, Double3.ONE),
+                "Geometries beyond the light must be ignored");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#rebuild()}.
+     */
+    @Test
+    void testRebuild() {
+        // a bottom-level object shared by two instances
+        Geometries object = new Geometries(new Sphere(new Point(-1, 0, 0), 0.5), new Sphere(new Point(1, 0, 0), 0.5));
+        Instance first = new Instance(object, Transform.translation(new Vector(0, 0, -10)));
+        Instance second = new Instance(object, Transform.translation(new Vector(0, 5, -10)));
+        Geometries scene = new Geometries(first, second).build();
+        int objectNodes = object.getNodeCount();
+        Ray ray = new Ray(new Point(1, 10, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Nothing is on the path of the ray
+        assertNull(scene.findClosestGeoIntersection(ray), "Must not be intersections");
+
+        // TC02: A moved instance is found after the top level is rebuilt
+        second.setTransform(Transform.translation(new Vector(0, 10, -10)));
+        scene.rebuild();
+        Intersectable.GeoPoint gp = scene.findClosestGeoIntersection(ray);
+        assertEquals(new Point(1, 10, -9.5), gp.point, "Wrong intersection with the moved instance");
+        assertSame(second, ((Instance.InstancedGeometry) gp.geometry).getInstance(), "Wrong intersected instance");
+
+        // TC03: The shared bottom level is reused by both instances
+        assertEquals(new Point(-1, 0, -9.5),
+                scene.findClosestGeoIntersection(new Ray(new Point(-1, 0, 0), new Vector(0, 0, -1))).point,
+                "Wrong intersection with the first instance");
+        assertEquals(objectNodes, object.getNodeCount(), "Bottom level must not change");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rebuilding an empty collection
+        assertNull(new Geometries().rebuild().findClosestGeoIntersection(ray), "Must not be intersections");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#refit(Intersectable...)}.
+     */
+    @Test
+    void testRefit() {
+        Sphere unitSphere = new Sphere(Point.ZERO, 1);
+        Instance[] instances = new Instance[50];
+        for (int i = 0; i < instances.length; ++i)
+            instances[i] = new Instance(unitSphere, Transform.translation(new Vector(i * 4, 0, -10)));
+        Geometries geometries = new Geometries(instances).setRebuildThreshold(1.2).build();
+        Ray ray = new Ray(new Point(0, 10, 0), new Vector(0, 0, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A moved instance is found after a refit
+        instances[0].setTransform(Transform.translation(new Vector(0, 10, -10)));
+        geometries.refit(instances[0]);
+        assertEquals(new Point(0, 10, -9), geometries.findClosestGeoIntersection(ray).point,
+                "Wrong intersection with the moved instance");
+        assertTrue(geometries.getBoundingBox().getMax().getY() >= 11, "Bounding box must include the moved instance");
+
+        // TC02: A refit that degrades the hierarchy too much rebuilds it
+        Random random = new Random(1);
+        for (Instance instance : instances)
+            instance.setTransform(Transform.translation(
+                    new Vector(random.nextDouble() * 200, random.nextDouble() * 200, -10)));
+        instances[1].setTransform(Transform.translation(new Vector(4, 300, -10)));
+        geometries.refit();
+        assertEquals(1, geometries.getSahDegradation(), 1e-12, "Degraded hierarchy must be rebuilt");
+        assertEquals(new Point(4, 300, -9),
+                geometries.findClosestGeoIntersection(new Ray(new Point(4, 300, 0), new Vector(0, 0, -1))).point,
+                "Wrong intersection after the rebuild");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Rebuild threshold below 1
+        assertThrows(IllegalArgumentException.class, () -> geometries.setRebuildThreshold(0.5),
+                "Rebuild threshold below 1 must be rejected");
+    }
+}
@@ -0,0 +1,73 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import org.junit.jupiter.api.Test;
+import primitives.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Instance class
+ */
+class InstanceTests {
+
+    private final Sphere unitSphere = new Sphere(Point.ZERO, 1);
+
+    /**
+     * Test method for {@link geometries.Instance#findClosestGeoIntersection(Ray, double, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Instance instance = new Instance(unitSphere,
+                Transform.scaling(2).then(Transform.translation(new Vector(0, 0, -10))));
+        Sphere copy = new Sphere(new Point(0, 0, -10), 2);
+        Ray ray = new Ray(new Point(0.5, 0.3, 0), new Vector(0.05, 0.02, -1));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same intersection as a sphere at the transformed position
+        GeoPoint gp = instance.findClosestGeoIntersection(ray);
+        assertEquals(copy.findClosestGeoIntersection(ray).point, gp.point, "Wrong intersection point");
+        assertSame(unitSphere, ((Instance.InstancedGeometry) gp.geometry).getGeometry(), "Wrong intersected geometry");
+        assertEquals(copy.getNormal(gp.point), gp.geometry.getNormal(gp.point), "Wrong world-space normal");
+
+        // TC02: The interval is in world-space distances
+        double t = ray.getP0().distance(gp.point);
+        assertNull(instance.findClosestGeoIntersection(ray, 0, t - 0.01), "Intersection must be beyond tMax");
+        assertEquals(copy.findGeoIntersections(ray).size(), instance.findGeoIntersections(ray).size(),
+                "Wrong number of intersections");
+
+        // TC03: Shared geometry - the second instance does not change the first
+        Instance other = new Instance(unitSphere, Transform.translation(new Vector(5, 0, -10)));
+        assertEquals(new Point(5, 0, -9), other.findClosestGeoIntersection(
+                new Ray(new Point(5, 0, 0), new Vector(0, 0, -1))).point, "Wrong intersection of the second instance");
+        assertEquals(gp.point, instance.findClosestGeoIntersection(ray).point, "Instances must not affect each other");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Non-uniform scaling - the normal of an ellipsoid
+        Instance ellipsoid = new Instance(unitSphere, Transform.scaling(4, 1, 1));
+        GeoPoint top = ellipsoid.findClosestGeoIntersection(new Ray(new Point(2, 5, 0), new Vector(0, -1, 0)));
+        assertEquals(new Point(2, Math.sqrt(0.75), 0), top.point, "Wrong intersection with the ellipsoid");
+        Vector normal = top.geometry.getNormal(top.point);
+        assertEquals(0, normal.dotProduct(new Vector(4, -0.5 / Math.sqrt(0.75), 0)), 1e-9,
+                "Normal must be perpendicular to the ellipse tangent");
+    }
+
+    /**
+     * Test method for {@link geometries.Instance#getBoundingBox()}.
+     */
+    @Test
+    void testGetBoundingBox() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Rotated box - the box of the rotated corners
+        AABB box = new Instance(unitSphere, Transform.rotation(new Vector(0, 0, 1), 45)
+                .then(Transform.translation(new Vector(1, 0, 0)))).getBoundingBox();
+        double r = Math.sqrt(2);
+        assertEquals(new Point(1 - r, -r, -1), box.getMin(), "Wrong minimum");
+        assertEquals(new Point(1 + r, r, 1), box.getMax(), "Wrong maximum");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unbounded geometry stays unbounded
+        assertFalse(new Instance(new Plane(Point.ZERO, new Vector(0, 0, 1)), Transform.translation(new Vector(1, 1, 1)))
+                .getBoundingBox().isFinite(), "Instance of a plane must be unbounded");
+    }
+}
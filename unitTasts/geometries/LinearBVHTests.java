@@ -0,0 +1,146 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing LinearBVH class
+ */
+class LinearBVHTests {
+
+    /**
+     * Builds random spheres.
+     *
+     * @param count the number of spheres
+     * @return the spheres
+     */
+    private static Intersectable[] spheres(int count) {
+        Random random = new Random(5);
+        Intersectable[] spheres = new Intersectable[count];
+        for (int i = 0; i < count; ++i)
+            spheres[i] = new Sphere(new Point(random.nextDouble() * 400 - 200, random.nextDouble() * 300 - 150,
+                    -100 - random.nextDouble() * 200), 0.5 + random.nextDouble() * 2);
+        return spheres;
+    }
+
+    /**
+     * Test method for {@link geometries.LinearBVH#spread(long)}.
+     */
+    @Test
+    void testSpread() {
+        // TC01: Every bit moves to three times its position
+        Random random = new Random(6);
+        for (int i = 0; i < 1000; ++i) {
+            long value = random.nextInt(1 << 21);
+            long expected = 0;
+            for (int bit = 0; bit < 21; ++bit)
+                expected |= (value >>> bit & 1) << 3 * bit;
+            assertEquals(expected, LinearBVH.spread(value), "Wrong spread bits");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.LinearBVH#radixSort(long[], int[], int)}.
+     */
+    @Test
+    void testRadixSort() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same order as a stable sort, with duplicate keys, in one chunk and in several chunks
+        Random random = new Random(7);
+        long[] keys = new long[100000];
+        for (int i = 0; i < keys.length; ++i)
+            keys[i] = random.nextInt(10) == 0 ? 42 : random.nextLong() >>> 1;
+        Integer[] expected = new Integer[keys.length];
+        for (int i = 0; i < keys.length; ++i) expected[i] = i;
+        Arrays.sort(expected, Comparator.comparingLong(i -> keys[i]));
+
+        for (int chunks : new int[]{1, 7}) {
+            long[] sortedKeys = keys.clone();
+            int[] values = new int[keys.length];
+            for (int i = 0; i < values.length; ++i) values[i] = i;
+            LinearBVH.radixSort(sortedKeys, values, chunks);
+            for (int i = 0; i < keys.length; ++i) {
+                assertEquals(expected[i], values[i], "Wrong order with " + chunks + " chunks");
+                assertEquals(keys[expected[i]], sortedKeys[i], "Wrong key with " + chunks + " chunks");
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Keys using the highest bit of the 63-bit codes
+        long[] high = {Long.MAX_VALUE, 0, 1L << 62, 3};
+        int[] values = {0, 1, 2, 3};
+        LinearBVH.radixSort(high, values, 1);
+        assertArrayEquals(new long[]{0, 3, 1L << 62, Long.MAX_VALUE}, high, "Wrong order of large keys");
+        assertArrayEquals(new int[]{1, 3, 2, 0}, values, "Wrong values of large keys");
+    }
+
+    /**
+     * Test method for {@link geometries.LinearBVH#build(Intersectable[], boolean, boolean)}.
+     */
+    @Test
+    void testBuild() {
+        Intersectable[] spheres = spheres(20000);
+        FlatBVH sah = new FlatBVH(new BVHNode(List.of(spheres)));
+        FlatBVH linear = new FlatBVH(LinearBVH.build(spheres, false, true));
+        FlatBVH treelets = new FlatBVH(LinearBVH.build(spheres, true, true));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same closest intersections as the SAH hierarchy
+        Random random = new Random(8);
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = new Ray(Point.ZERO, new Vector(random.nextDouble() * 400 - 200, random.nextDouble() * 300 - 150, -150));
+            var expected = sah.findClosestGeoIntersection(ray);
+            assertEquals(expected, linear.findClosestGeoIntersection(ray), "Wrong closest intersection of the LBVH");
+            assertEquals(expected, treelets.findClosestGeoIntersection(ray), "Wrong closest intersection after treelets");
+        }
+
+        // TC02: The treelet pass lowers the SAH cost
+        assertTrue(treelets.getSahCost() < linear.getSahCost(), "Treelet optimization must lower the SAH cost");
+
+        // TC03: A parallel build gives the same hierarchy as a sequential one
+        FlatBVH sequential = new FlatBVH(LinearBVH.build(spheres, true, false));
+        assertEquals(treelets.getSahCost(), sequential.getSahCost(), "Parallel build must give the same hierarchy");
+        assertEquals(treelets.getNodeCount(), sequential.getNodeCount(), "Parallel build must give the same hierarchy");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: All the objects at the same place - equal Morton codes
+        Intersectable[] same = new Intersectable[100];
+        for (int i = 0; i < same.length; ++i) same[i] = new Sphere(new Point(0, 0, -10), 1 + i * 0.01);
+        BVHNode tree = LinearBVH.build(same, true, true);
+        assertEquals(new Point(0, 0, -8.01), tree.findClosestGeoIntersection(
+                new Ray(Point.ZERO, new Vector(0, 0, -1))).point, "Wrong intersection with equal codes");
+
+        // TC12: A single object
+        assertEquals(1, new FlatBVH(LinearBVH.build(new Intersectable[]{same[0]}, false, true)).getNodeCount(),
+                "Single object must be a single leaf");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#setBuildStrategy(Geometries.BuildStrategy)}.
+     */
+    @Test
+    void testBuildStrategy() {
+        List<Intersectable> spheres = new ArrayList<>(List.of(spheres(2000)));
+        spheres.add(new Plane(new Point(0, 0, -400), new Vector(0, 0, 1)));
+        Geometries geometries = new Geometries(spheres.toArray(new Intersectable[0]));
+        Ray ray = new Ray(Point.ZERO, new Vector(0.3, 0.1, -1));
+        var expected = geometries.findClosestGeoIntersection(ray);
+
+        // TC01: Every strategy finds the same closest intersection
+        for (Geometries.BuildStrategy strategy : Geometries.BuildStrategy.values()) {
+            geometries.setBuildStrategy(strategy);
+            assertEquals(expected, geometries.findClosestGeoIntersection(ray), "Wrong intersection with " + strategy);
+            assertEquals(1, geometries.getUnboundedCount(), "Plane must be kept out of the tree with " + strategy);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package geometries;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing QuadBVH class
+ */
+class QuadBVHTests {
+
+    /**
+     * Builds unit spheres in a row along the x axis, so the binary hierarchy over them is balanced.
+     *
+     * @param count the number of spheres
+     * @return the spheres
+     */
+    private static List<Intersectable> row(int count) {
+        List<Intersectable> spheres = new ArrayList<>();
+        for (int i = 0; i < count; ++i)
+            spheres.add(new Sphere(new Point(i * 3, 0, -10), 1));
+        return spheres;
+    }
+
+    /**
+     * Test method for {@link geometries.QuadBVH#findClosestGeoIntersection(Ray)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        BVHNode tree = new BVHNode(FlatBVHTests.spheres());
+        FlatBVH flat = new FlatBVH(tree);
+        QuadBVH quad = new QuadBVH(tree);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same closest intersections, intersections and transparency as the binary hierarchy
+        for (Ray ray : FlatBVHTests.rays(2000)) {
+            assertEquals(flat.findClosestGeoIntersection(ray), quad.findClosestGeoIntersection(ray),
+                    "Wrong closest intersection");
+            List<Point> flatPoints = flat.findIntersections(ray);
+            List<Point> quadPoints = quad.findIntersections(ray);
+            assertEquals(flatPoints == null ? 0 : flatPoints.size(), quadPoints == null ? 0 : quadPoints.size(),
+                    "Wrong number of intersections");
+            assertEquals(flat.findTransparency(ray, 120, Double3.ONE), quad.findTransparency(ray, 120, Double3.ONE),
+                    "Wrong transparency");
+        }
+
+        // TC02: Collapsing a balanced binary hierarchy of 64 objects (depth 6) halves its depth,
+        // and every 4-wide node has four children
+        BVHNode balanced = new BVHNode(row(64));
+        QuadBVH collapsed = new QuadBVH(balanced);
+        assertEquals(6, balanced.getDepth(), "Wrong depth of the binary hierarchy");
+        assertEquals(3, collapsed.getDepth(), "4-wide hierarchy must be half as deep");
+        assertEquals(1 + 4 + 16, collapsed.getNodeCount(), "Every node must have four children");
+
+        // TC03: The transparencies of all the objects along the ray are multiplied, in every lane
+        List<Intersectable> transparent = row(8);
+        for (Intersectable sphere : transparent) ((Sphere) sphere).setMaterial(new Material().setKt(0.5));
+        QuadBVH glass = new QuadBVH(new BVHNode(transparent));
+        assertEquals(new Double3(0.25), glass.findTransparency(new Ray(Point.ZERO, new Vector(0, 0, -1)),
+                100, Double3.ONE), "Wrong transparency through a single sphere");
+        assertEquals(new Double3(Math.pow(0.5, 16)), glass.findTransparency(new Ray(new Point(-5, 0, -10),
+                new Vector(1, 0, 0)), 100, Double3.ONE), "Wrong transparency through all the spheres");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A single object - three empty lanes
+        QuadBVH single = new QuadBVH(new BVHNode(row(1)));
+        assertEquals(new Point(0, 0, -9), single.findClosestGeoIntersection(new Ray(Point.ZERO, new Vector(0, 0, -1))).point,
+                "Wrong intersection with a single object");
+        assertNull(single.findClosestGeoIntersection(new Ray(Point.ZERO, new Vector(0, 1, 0))),
+                "Empty lanes must not be intersected");
+
+        // TC12: Three objects - the root is collapsed into three children and one empty lane
+        QuadBVH three = new QuadBVH(new BVHNode(row(3)));
+        assertEquals(1, three.getNodeCount(), "Three objects must fit in a single node");
+        for (int i = 0; i < 3; ++i)
+            assertEquals(new Point(i * 3, 0, -9),
+                    three.findClosestGeoIntersection(new Ray(new Point(i * 3, 0, 0), new Vector(0, 0, -1))).point,
+                    "Wrong intersection with child " + i);
+        assertNull(three.findClosestGeoIntersection(new Ray(new Point(9, 0, 0), new Vector(0, 0, -1))),
+                "Empty lane must not be intersected");
+
+        // TC13: Node width of Geometries
+        assertThrows(IllegalArgumentException.class, () -> new Geometries().setNodeWidth(3),
+                "Node width must be 2 or 4");
+        Geometries geometries = new Geometries(FlatBVHTests.spheres().toArray(new Intersectable[0])).setNodeWidth(4);
+        Ray ray = new Ray(Point.ZERO, new Vector(-0.5, 0.5, -1));
+        assertEquals(new Geometries(FlatBVHTests.spheres().toArray(new Intersectable[0])).findClosestGeoIntersection(ray).point,
+                geometries.findClosestGeoIntersection(ray).point, "Wrong intersection with a 4-wide collection");
+    }
+
+    /**
+     * Test method for {@link QuadBoxTest#entryDistances(double[], int, Ray, double, double, double[])}.
+     */
+    @Test
+    void testBoxTest() {
+        QuadBoxTest scalar = new ScalarQuadBoxTest();
+        Random random = new Random(5);
+        double[] boxes = new double[24];
+        double[] expected = new double[4], actual = new double[4];
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The selected box test (SIMD or scalar) agrees with the scalar one on random boxes and rays
+        for (int i = 0; i < 2000; ++i) {
+            for (int axis = 0; axis < 3; ++axis)
+                for (int lane = 0; lane < 4; ++lane) {
+                    double a = random.nextDouble() * 20 - 10, b = random.nextDouble() * 20 - 10;
+                    boxes[axis * 4 + lane] = Math.min(a, b);
+                    boxes[(axis + 3) * 4 + lane] = Math.max(a, b);
+                }
+            Ray ray = new Ray(new Point(random.nextDouble() * 30 - 15, random.nextDouble() * 30 - 15,
+                    random.nextDouble() * 30 - 15),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            double tMax = i % 2 == 0 ? Double.POSITIVE_INFINITY : random.nextDouble() * 20;
+            scalar.entryDistances(boxes, 0, ray, 0, tMax, expected);
+            QuadBVH.BOX_TEST.entryDistances(boxes, 0, ray, 0, tMax, actual);
+            assertArrayEquals(expected, actual, "Wrong entry distances");
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Axis-parallel ray (infinite reciprocal directions) and empty lanes
+        for (int axis = 0; axis < 3; ++axis)
+            for (int lane = 0; lane < 4; ++lane) {
+                boxes[axis * 4 + lane] = lane == 3 ? Double.POSITIVE_INFINITY : -lane - 1;
+                boxes[(axis + 3) * 4 + lane] = lane == 3 ? Double.NEGATIVE_INFINITY : lane + 1;
+            }
+        Ray ray = new Ray(new Point(0, 0, 10), new Vector(0, 0, -1));
+        scalar.entryDistances(boxes, 0, ray, 0, Double.POSITIVE_INFINITY, expected);
+        QuadBVH.BOX_TEST.entryDistances(boxes, 0, ray, 0, Double.POSITIVE_INFINITY, actual);
+        assertArrayEquals(new double[]{9, 8, 7, Double.POSITIVE_INFINITY}, expected, "Wrong scalar entry distances");
+        assertArrayEquals(expected, actual, "Wrong entry distances of an axis-parallel ray");
+    }
+
+    /**
+     * Benchmark of the closest intersection queries of QuadBVH against FlatBVH.
+     * Not part of the unit tests - run it explicitly.
+     */
+    @Test
+    @Tag("benchmark")
+    @Disabled("Benchmark - run explicitly")
+    void benchmarkFindClosestGeoIntersection() {
+        BVHNode tree = new BVHNode(FlatBVHTests.spheres());
+        FlatBVH flat = new FlatBVH(tree);
+        QuadBVH quad = new QuadBVH(tree);
+        Ray[] rays = FlatBVHTests.rays(200000);
+
+        for (int round = 0; round < 3; ++round) {
+            long startTime = System.currentTimeMillis();
+            for (Ray ray : rays) flat.findClosestGeoIntersection(ray);
+            long flatTime = System.currentTimeMillis() - startTime;
+
+            startTime = System.currentTimeMillis();
+            for (Ray ray : rays) quad.findClosestGeoIntersection(ray);
+            long quadTime = System.currentTimeMillis() - startTime;
+
+            System.out.println("FlatBVH: " + flatTime + " ms, QuadBVH: " + quadTime + " ms");
+        }
+    }
+}
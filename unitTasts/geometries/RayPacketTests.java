@@ -0,0 +1,124 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing RayPacket class and the packet queries
+ */
+class RayPacketTests {
+
+    /**
+     * Builds a scene of random spheres, every third one transparent, above an unbounded plane.
+     *
+     * @return the scene
+     */
+    private Geometries scene() {
+        Random random = new Random(11);
+        List<Intersectable> items = new ArrayList<>();
+        for (int i = 0; i < 500; ++i)
+            items.add(new Sphere(new Point(random.nextDouble() * 200 - 100, random.nextDouble() * 160 - 80,
+                    -60 - random.nextDouble() * 100), 0.5 + random.nextDouble() * 4)
+                    .setMaterial(new Material().setKt(i % 3 == 0 ? 0.5 : 0)));
+        items.add(new Plane(new Point(0, -90, 0), new Vector(0, 1, 0)));
+        return new Geometries(items.toArray(new Intersectable[0]));
+    }
+
+    /**
+     * Builds the rays of an 8x8 block of pixels.
+     *
+     * @param x the left offset of the block on the view plane
+     * @param y the bottom offset of the block on the view plane
+     * @return the rays
+     */
+    private Ray[] block(double x, double y) {
+        Ray[] rays = new Ray[64];
+        for (int i = 0; i < 8; ++i)
+            for (int j = 0; j < 8; ++j)
+                rays[i * 8 + j] = new Ray(Point.ZERO, new Vector(x + j * 0.5, y + i * 0.5, -100));
+        return rays;
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findClosestGeoIntersections(RayPacket)}.
+     */
+    @Test
+    void testFindClosestGeoIntersections() {
+        Geometries geometries = scene();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Coherent packets find the same intersections as the single rays
+        for (double x = -100; x < 100; x += 4)
+            for (double y = -100; y < 80; y += 4) {
+                RayPacket packet = new RayPacket(block(x, y));
+                assertEquals((x > 0 || x + 3.5 < 0) && (y > 0 || y + 3.5 < 0), packet.isCoherent(),
+                        "Packets crossing an axis are not coherent");
+                geometries.findClosestGeoIntersections(packet);
+                for (int r = 0; r < packet.size(); ++r)
+                    assertEquals(geometries.findClosestGeoIntersection(packet.getRay(r)), packet.getHit(r),
+                            "Wrong closest intersection");
+            }
+
+        // TC02: An incoherent packet - rays in all directions
+        Random random = new Random(12);
+        Ray[] rays = new Ray[100];
+        for (int r = 0; r < rays.length; ++r)
+            rays[r] = new Ray(new Point(0, 0, -100), new Vector(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+        RayPacket packet = new RayPacket(rays);
+        assertFalse(packet.isCoherent(), "Packet must not be coherent");
+        geometries.findClosestGeoIntersections(packet);
+        for (int r = 0; r < packet.size(); ++r)
+            assertEquals(geometries.findClosestGeoIntersection(rays[r]), packet.getHit(r), "Wrong closest intersection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A packet that misses everything
+        packet = new RayPacket(new Ray(Point.ZERO, new Vector(0, 1, 0.01)), new Ray(Point.ZERO, new Vector(0.01, 1, 0)));
+        geometries.findClosestGeoIntersections(packet);
+        assertNull(packet.getHit(0), "Ray must miss");
+        assertNull(packet.getHit(1), "Ray must miss");
+
+        // TC12: An empty packet
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(), "Packet must not be empty");
+    }
+
+    /**
+     * Test method for {@link geometries.Intersectable#findTransparencies(RayPacket)}.
+     */
+    @Test
+    void testFindTransparencies() {
+        Geometries geometries = scene();
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Shadow rays toward a point light accumulate the same transparencies as the single rays
+        Point light = new Point(20, 100, -80);
+        Random random = new Random(13);
+        Ray[] rays = new Ray[64];
+        double[] distances = new double[rays.length];
+        for (int r = 0; r < rays.length; ++r) {
+            Point head = new Point(random.nextDouble() * 40 - 20, -89, -60 - random.nextDouble() * 100);
+            rays[r] = new Ray(head, light.subtract(head));
+            distances[r] = head.distance(light);
+        }
+        RayPacket packet = new RayPacket(rays, distances);
+        geometries.findTransparencies(packet);
+        for (int r = 0; r < packet.size(); ++r)
+            assertEquals(geometries.findTransparency(rays[r], distances[r], Double3.ONE), packet.getTransparency(r),
+                    "Wrong transparency");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: The number of distances differs from the number of rays
+        assertThrows(IllegalArgumentException.class, () -> new RayPacket(rays, new double[1]),
+                "Every ray must have a distance");
+    }
+}
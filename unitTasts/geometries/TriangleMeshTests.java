@@ -0,0 +1,161 @@
+package geometries;
+
+import org.junit.jupiter.api.Test;
+import geometries.Intersectable.GeoPoint;
+import primitives.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing TriangleMesh class
+ */
+class TriangleMeshTests {
+
+    /**
+     * Builds a height field of size x size quads over the xy plane, two faces per quad.
+     *
+     * @param size the number of quads along each axis
+     * @return the positions followed by the indices
+     */
+    private static Object[] heightField(int size) {
+        double[] positions = new double[(size + 1) * (size + 1) * 3];
+        for (int y = 0; y <= size; ++y)
+            for (int x = 0; x <= size; ++x) {
+                int v = (y * (size + 1) + x) * 3;
+                positions[v] = x;
+                positions[v + 1] = y;
+                positions[v + 2] = -10 + Math.sin(x * 0.7) + Math.cos(y * 0.4);
+            }
+        int[] indices = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; ++y)
+            for (int x = 0; x < size; ++x) {
+                int a = y * (size + 1) + x;
+                int b = a + 1;
+                int c = a + size + 1;
+                int d = c + 1;
+                indices[i++] = a;
+                indices[i++] = b;
+                indices[i++] = d;
+                indices[i++] = a;
+                indices[i++] = d;
+                indices[i++] = c;
+            }
+        return new Object[]{positions, indices};
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[])}.
+     */
+    @Test
+    void testConstructor() {
+        double[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0};
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Correct mesh
+        TriangleMesh mesh = new TriangleMesh(positions, new int[]{0, 1, 2});
+        assertEquals(1, mesh.getFaceCount(), "Wrong number of faces");
+        assertEquals(3, mesh.getVertexCount(), "Wrong number of vertices");
+
+        // TC02: Index out of range
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[]{0, 1, 3}),
+                "Index out of range must be rejected");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: No faces
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[0]),
+                "Mesh without faces must be rejected");
+
+        // TC12: Incomplete face
+        assertThrows(IllegalArgumentException.class, () -> new TriangleMesh(positions, new int[]{0, 1}),
+                "Incomplete face must be rejected");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#setMaterial(Material)}.
+     */
+    @Test
+    void testFace() {
+        Material material = new Material().setKd(0.3);
+        TriangleMesh mesh = new TriangleMesh(new double[]{0, 0, -5, 2, 0, -5, 0, 2, -5}, new int[]{0, 1, 2})
+                .setMaterial(material).setEmission(new Color(10, 20, 30));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The face of an intersection carries the material and emission of the mesh and the normal of the face
+        GeoPoint gp = mesh.findClosestGeoIntersection(new Ray(new Point(0.5, 0.5, 0), new Vector(0, 0, -1)));
+        TriangleMesh.Face face = assertInstanceOf(TriangleMesh.Face.class, gp.geometry, "Wrong geometry");
+        assertSame(mesh, face.getMesh(), "Wrong mesh");
+        assertSame(material, face.getMaterial(), "Wrong material");
+        assertEquals(new Color(10, 20, 30).getColor(), face.getEmission().getColor(), "Wrong emission");
+        assertEquals(new Vector(0, 0, 1), face.getNormal(gp.point), "Wrong normal");
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#findClosestGeoIntersection(Ray, double, double)}.
+     */
+    @Test
+    void testFindClosestGeoIntersection() {
+        Object[] field = heightField(20);
+        double[] positions = (double[]) field[0];
+        int[] indices = (int[]) field[1];
+        TriangleMesh mesh = new TriangleMesh(positions, indices);
+        mesh.setMaterial(new Material().setKt(0.5));
+
+        // the same faces as standalone triangles
+        Geometries triangles = new Geometries();
+        for (int f = 0; f < indices.length; f += 3) {
+            Point[] vertices = new Point[3];
+            for (int k = 0; k < 3; ++k) {
+                int v = indices[f + k] * 3;
+                vertices[k] = new Point(positions[v], positions[v + 1], positions[v + 2]);
+            }
+            triangles.add(new Triangle(vertices[0], vertices[1], vertices[2]).setMaterial(new Material().setKt(0.5)));
+        }
+
+        // TC01: Same intersections, normals and transparency as the standalone triangles
+        Random random = new Random(3);
+        for (int k = 0; k < 1000; ++k) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 20, random.nextDouble() * 20, 5),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            Intersectable.GeoPoint expected = triangles.findClosestGeoIntersection(ray);
+            Intersectable.GeoPoint actual = mesh.findClosestGeoIntersection(ray);
+            if (expected == null) {
+                assertNull(actual, "Ray must miss the mesh");
+                continue;
+            }
+            assertEquals(expected.point, actual.point, "Wrong closest intersection");
+            assertEquals(expected.geometry.getNormal(expected.point), actual.geometry.getNormal(actual.point),
+                    "Wrong normal");
+            assertSame(mesh.getMaterial(), actual.geometry.getMaterial(), "Face must use the material of the mesh");
+
+            List<Point> all = mesh.findIntersections(ray);
+            assertEquals(triangles.findIntersections(ray).size(), all.size(), "Wrong number of intersections");
+            assertEquals(triangles.findTransparency(ray, 30, Double3.ONE), mesh.findTransparency(ray, 30, Double3.ONE),
+                    "Wrong transparency");
+        }
+    }
+
+    /**
+     * Test method for {@link geometries.TriangleMesh#TriangleMesh(double[], int[], boolean)}.
+     */
+    @Test
+    void testParallelBuild() {
+        // TC01: A parallel build gives the same hierarchy and face order as a sequential one
+        Object[] field = heightField(200);
+        TriangleMesh parallel = new TriangleMesh((double[]) field[0], (int[]) field[1], true);
+        TriangleMesh sequential = new TriangleMesh((double[]) field[0], (int[]) field[1], false);
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; ++i) {
+            Ray ray = new Ray(new Point(random.nextDouble() * 200, random.nextDouble() * 200, 0),
+                    new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, -1));
+            var expected = sequential.findClosestGeoIntersection(ray);
+            var found = parallel.findClosestGeoIntersection(ray);
+            assertEquals(expected == null ? -1 : ((TriangleMesh.Face) expected.geometry).getIndex(),
+                    found == null ? -1 : ((TriangleMesh.Face) found.geometry).getIndex(),
+                    "Parallel build must keep the face order");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Color class
+ */
+class ColorTests {
+
+    /**
+     * Test method for {@link primitives.Color#difference(Color)}.
+     */
+    @Test
+    void testDifference() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The largest component difference, whichever component and sign it has
+        assertEquals(10, new Color(10, 20, 30).difference(new Color(15, 10, 31)), 1e-10, "Wrong difference");
+        assertEquals(7, new Color(10, 20, 30).difference(new Color(11, 19, 23)), 1e-10, "Wrong difference");
+
+        // TC02: The difference is symmetric
+        assertEquals(new Color(15, 10, 31).difference(new Color(10, 20, 30)),
+                new Color(10, 20, 30).difference(new Color(15, 10, 31)), 1e-10, "Difference must be symmetric");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Equal colors
+        assertEquals(0, new Color(10, 20, 30).difference(new Color(10, 20, 30)), 1e-10, "Equal colors must not differ");
+
+        // TC12: Colors brighter than 255 are not clamped
+        assertEquals(400, new Color(500, 0, 0).difference(Color.BLACK.add(new Color(100, 0, 0))), 1e-10,
+                "Unclamped colors must differ by the full amount");
+    }
+}
@@ -0,0 +1,52 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing Transform class
+ */
+class TransformTests {
+
+    private final Transform transform = Transform.scaling(2, 1, 0.5)
+            .then(Transform.rotation(new Vector(0, 0, 1), 90))
+            .then(Transform.translation(new Vector(1, 2, 3)));
+
+    /**
+     * Test method for {@link primitives.Transform#transformPoint(Point)}.
+     */
+    @Test
+    void testTransformPoint() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Scaling, then rotation, then translation
+        assertEquals(new Point(0, 4, 3.5), transform.transformPoint(new Point(1, 1, 1)), "Wrong transformed point");
+
+        // TC02: The inverse returns the original point
+        Point p = new Point(-3, 0.5, 7);
+        assertEquals(p, transform.inverseTransformPoint(transform.transformPoint(p)), "Inverse must undo the transform");
+        assertEquals(p, transform.inverse().transformPoint(transform.transformPoint(p)), "Inverse must undo the transform");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Vectors are not translated
+        assertEquals(new Vector(0, 2, 0), transform.transformVector(new Vector(1, 0, 0)), "Vectors must not be translated");
+
+        // TC12: Singular transformation
+        assertThrows(IllegalArgumentException.class, () -> Transform.scaling(1, 0, 1),
+                "Singular transformation must be rejected");
+    }
+
+    /**
+     * Test method for {@link primitives.Transform#transformNormal(Vector)}.
+     */
+    @Test
+    void testTransformNormal() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The normal of the plane x + y = 0 stays perpendicular to it under a non-uniform scaling
+        Transform scaling = Transform.scaling(4, 1, 1);
+        Vector normal = scaling.transformNormal(new Vector(1, 1, 0));
+        Vector inPlane = scaling.transformVector(new Vector(1, -1, 0));
+        assertEquals(0, normal.dotProduct(inPlane), 1e-12, "Normal must stay perpendicular to the surface");
+        assertEquals(1, normal.length(), 1e-12, "Normal must be normalized");
+    }
+}
@@ -0,0 +1,54 @@
+package primitives;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing VectorMath class - every helper must agree with the immutable API
+ */
+class VectorMathTests {
+
+    private final Point a = new Point(1, 2, 3);
+    private final Point b = new Point(-2, 4, 0.5);
+    private final Vector v = new Vector(3, -1, 2);
+    private final Vector n = new Vector(0, 0, 1);
+
+    /**
+     * Test method for {@link primitives.VectorMath#dotDifference(Point, Point, Vector)}.
+     */
+    @Test
+    void testDotDifference() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same as subtracting and multiplying
+        assertEquals(a.subtract(b).dotProduct(v), VectorMath.dotDifference(a, b, v), 1e-12, "Wrong dot product");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Same points
+        assertEquals(0, VectorMath.dotDifference(a, a, v), "Dot product of the zero difference must be 0");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#pointAt(Point, Vector, double)}.
+     */
+    @Test
+    void testPointAt() {
+        // TC01: Same as scaling and adding
+        assertEquals(a.add(v.scale(2.5)), VectorMath.pointAt(a, v, 2.5), "Wrong point");
+    }
+
+    /**
+     * Test method for {@link primitives.VectorMath#reflect(Vector, Vector, double)}.
+     */
+    @Test
+    void testReflect() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same as the reflection formula
+        assertEquals(v.subtract(n.scale(2 * v.dotProduct(n))), VectorMath.reflect(v, n, v.dotProduct(n)),
+                "Wrong reflection");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Vector parallel to the normal is reflected back
+        assertEquals(new Vector(0, 0, -2), VectorMath.reflect(new Vector(0, 0, 2), n, 2), "Wrong back reflection");
+    }
+}
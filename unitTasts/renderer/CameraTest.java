@@ -1,12 +1,25 @@
 package renderer;
 
+import geometries.Plane;
+import geometries.Sphere;
+import geometries.Triangle;
+import lighting.AmbientLight;
+import lighting.PointLight;
+import lighting.SpotLight;
 import org.junit.jupiter.api.Test;
+import primitives.Color;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 import scene.Scene;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 //import scene.Scene;
 
 /**
@@ -67,4 +80,247 @@ class CameraTest {
 
     }
 
+    /**
+     * Test method for
+     * {@link renderer.Camera#constructRay(int, int, int, int, double, double)}.
+     */
+    @Test
+    void testConstructRayWithOffset() {
+        final String badRay = "Bad ray";
+        Camera camera = cameraBuilder.setVpSize(8, 8).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: 4X4 Inside (1,1), a point inside the pixel
+        assertEquals(new Ray(Point.ZERO, new Vector(0.5, -0.5, -10)),
+                camera.constructRay(4, 4, 1, 1, 0.25, 0.25), badRay);
+
+        // EP02: Rotated camera - the offset follows the camera orientation and the head stays in place
+        Camera rotated = cameraBuilder.setLocation(new Point(1, 2, 3))
+                .setDirection(new Vector(1, 0, 0), new Vector(0, 0, 1)).build();
+        assertEquals(new Ray(new Point(1, 2, 3), new Vector(10, -2, 2)),
+                rotated.constructRay(4, 4, 2, 1, 0.5, -0.5), badRay);
+
+        // =============== Boundary Values Tests ==================
+        // BV01: 4X4 Inside (1,1), the top left corner of the pixel
+        assertEquals(new Ray(Point.ZERO, new Vector(2, -2, -10)),
+                camera.constructRay(4, 4, 1, 1, -0.5, -0.5), badRay);
+
+        // BV02: 4X4 Inside (1,1), the corner shared with the pixel (2,2)
+        assertEquals(camera.constructRay(4, 4, 2, 2, -0.5, -0.5),
+                camera.constructRay(4, 4, 1, 1, 0.5, 0.5), badRay);
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.Camera#constructRays(int, int, int, int, int, int)}.
+     */
+    @Test
+    void testConstructRays() {
+        Camera camera = cameraBuilder.setVpSize(8, 6).build();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: A block inside the image is generated row by row
+        Ray[] rays = camera.constructRays(5, 4, 1, 1, 4, 3);
+        assertEquals(6, rays.length, "Wrong number of rays");
+        for (int i = 1; i < 3; i++)
+            for (int j = 1; j < 4; j++)
+                assertEquals(camera.constructRay(5, 4, j, i), rays[(i - 1) * 3 + j - 1], "Bad ray");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single pixel
+        assertEquals(camera.constructRay(5, 4, 4, 3), camera.constructRays(5, 4, 4, 3, 5, 4)[0], "Bad ray");
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.Camera#renderImageProgressive(int, Camera.ProgressListener)}.
+     */
+    @Test
+    void testRenderImageProgressive() {
+        ImageWriter imageWriter = new ImageWriter("Test", 2, 2);
+        Camera camera = cameraBuilder.setVpSize(8, 8).setImageWriter(imageWriter).build();
+        List<Integer> passes = new ArrayList<>();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: The samples per pixel double until the budget is reached
+        camera.renderImageProgressive(5, (pass, samples) -> passes.add(samples));
+        assertEquals(List.of(1, 2, 4, 5), passes, "Wrong passes");
+        assertEquals(5, imageWriter.getSampleCount(1, 1), "Wrong number of samples");
+
+        // EP02: The listener stops the rendering after the second pass
+        passes.clear();
+        camera.renderImageProgressive(64, (pass, samples) -> passes.add(samples) && pass < 2);
+        assertEquals(List.of(1, 2), passes, "Wrong passes");
+        assertEquals(2, imageWriter.getSampleCount(0, 1), "Wrong number of samples");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single sample per pixel
+        passes.clear();
+        camera.renderImageProgressive(1, (pass, samples) -> passes.add(samples));
+        assertEquals(List.of(1), passes, "Wrong passes");
+        assertEquals(1, imageWriter.getSampleCount(0, 0), "Wrong number of samples");
+
+        // BV02: No samples
+        assertThrows(IllegalArgumentException.class, () -> camera.renderImageProgressive(0, (pass, samples) -> true),
+                "At least 1 sample per pixel is required");
+    }
+
+    /**
+     * A ray tracer that counts the traced rays and returns a constant color, or random colors to force
+     * every square to be subdivided.
+     */
+    private static class CountingTracer extends RayTracerBase {
+        private final Random random;
+        private int count = 0;
+
+        /**
+         * Constructs a counting tracer.
+         *
+         * @param noisy true for random colors, false for a constant color
+         */
+        CountingTracer(boolean noisy) {
+            super(new Scene("Test"));
+            random = noisy ? new Random(3) : null;
+        }
+
+        @Override
+        public Color traceRay(Ray ray) {
+            count++;
+            return random == null ? new Color(10, 20, 30)
+                    : new Color(random.nextDouble() * 255, random.nextDouble() * 255, random.nextDouble() * 255);
+        }
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.Camera#renderImageWithAdaptiveAntiAliasing(int, double)}.
+     */
+    @Test
+    void testRenderImageWithAdaptiveAntiAliasing() {
+        Camera.Builder builder = cameraBuilder.setVpSize(8, 8).setImageWriter(new ImageWriter("Test", 2, 2));
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Noisy pixels are fully subdivided - the whole 5x5 grid, every ray traced once
+        CountingTracer noisy = new CountingTracer(true);
+        builder.setRayTracer(noisy).build().renderImageWithAdaptiveAntiAliasing(25, 1);
+        assertEquals(4 * 25, noisy.count, "Wrong number of rays");
+
+        // EP02: A budget between two grids uses the smaller grid
+        noisy = new CountingTracer(true);
+        builder.setRayTracer(noisy).build().renderImageWithAdaptiveAntiAliasing(80, 1);
+        assertEquals(4 * 25, noisy.count, "Budget must not be exceeded");
+
+        // EP03: Flat pixels stop at their 4 corners
+        CountingTracer flat = new CountingTracer(false);
+        builder.setRayTracer(flat).build().renderImageWithAdaptiveAntiAliasing(81, 1);
+        assertEquals(4 * 4, flat.count, "Flat pixels must not be subdivided");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: The largest grid of the budget
+        noisy = new CountingTracer(true);
+        builder.setRayTracer(noisy).build().renderImageWithAdaptiveAntiAliasing(81, 1);
+        assertEquals(4 * 81, noisy.count, "Wrong number of rays");
+
+        // BV02: The smallest budget - the corners only
+        noisy = new CountingTracer(true);
+        builder.setRayTracer(noisy).build().renderImageWithAdaptiveAntiAliasing(4, 1);
+        assertEquals(4 * 4, noisy.count, "Wrong number of rays");
+
+        // BV03: A budget lower than 4
+        assertThrows(IllegalArgumentException.class,
+                () -> builder.build().renderImageWithAdaptiveAntiAliasing(3, 1), "Budget must be at least 4");
+    }
+
+    /**
+     * Builds a camera over a small scene with shadows, a transparent sphere and a reflective floor.
+     *
+     * @param imageWriter the image writer of the camera
+     * @return the camera
+     */
+    private Camera shadedCamera(ImageWriter imageWriter) {
+        Scene scene = new Scene("Test").setAmbientLight(new AmbientLight(new Color(30, 30, 30), 0.15));
+        scene.geometries.add(
+                new Plane(new Point(0, -50, 0), new Vector(0, 1, 0)).setEmission(new Color(20, 20, 20))
+                        .setMaterial(new Material().setKd(0.5).setKs(0.3).setShininess(20).setKr(0.3)),
+                new Sphere(new Point(-30, -20, -150), 30).setEmission(new Color(100, 20, 20))
+                        .setMaterial(new Material().setKd(0.4).setKs(0.4).setShininess(60)),
+                new Sphere(new Point(25, -10, -100), 40).setEmission(new Color(20, 20, 100))
+                        .setMaterial(new Material().setKd(0.3).setKs(0.3).setShininess(80).setKt(0.6)),
+                new Triangle(new Point(-60, 40, -200), new Point(60, 40, -200), new Point(0, -50, -220))
+                        .setEmission(new Color(20, 80, 20)).setMaterial(new Material().setKd(0.5).setKs(0.2)));
+        scene.lights.add(new SpotLight(new Color(600, 400, 300), new Point(-80, 100, 50), new Vector(1, -1, -2))
+                .setKl(1E-4).setKq(1E-6));
+        scene.lights.add(new PointLight(new Color(200, 200, 300), new Point(60, 80, 0)).setKl(1E-4).setKq(1E-6));
+        return Camera.getBuilder()
+                .setRayTracer(new SimpleRayTracer(scene))
+                .setImageWriter(imageWriter)
+                .setLocation(new Point(0, 0, 200))
+                .setDirection(new Vector(0, 0, -1), new Vector(0, 1, 0))
+                .setVpDistance(200).setVpSize(200, 200)
+                .build();
+    }
+
+    /**
+     * Checks that two images are identical, pixel by pixel.
+     *
+     * @param expected the reference image
+     * @param actual   the checked image
+     * @param message  the message of a failure
+     */
+    private static void assertSameImage(ImageWriter expected, ImageWriter actual, String message) {
+        for (int i = 0; i < expected.getNy(); i++)
+            for (int j = 0; j < expected.getNx(); j++)
+                assertEquals(0, expected.getPixel(j, i).difference(actual.getPixel(j, i)), message + " at pixel " + j + "," + i);
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setMultiThreading(boolean)}.
+     */
+    @Test
+    void testMultiThreadedRender() {
+        ImageWriter single = new ImageWriter("Test", 30, 30);
+        shadedCamera(single).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Tiles rendered on several threads give the pixels of a single-threaded render
+        ImageWriter multi = new ImageWriter("Test", 30, 30);
+        shadedCamera(multi).setMultiThreading(true).setThreadsCount(3).setTileSize(4).renderImage();
+        assertSameImage(single, multi, "Multi-threaded render differs");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: A single tile covering the whole image
+        multi = new ImageWriter("Test", 30, 30);
+        shadedCamera(multi).setMultiThreading(true).setThreadsCount(3).setTileSize(64).renderImage();
+        assertSameImage(single, multi, "Single-tile render differs");
+    }
+
+    /**
+     * Test method for {@link renderer.Camera#setPacketSize(int)}.
+     */
+    @Test
+    void testPacketRender() {
+        ImageWriter single = new ImageWriter("Test", 30, 30);
+        shadedCamera(single).setPacketSize(1).renderImage();
+
+        // ============ Equivalence Partitions Tests ==============
+        // EP01: Primary rays traced in 4x4 packets give the pixels of rays traced one by one
+        ImageWriter packets = new ImageWriter("Test", 30, 30);
+        shadedCamera(packets).setPacketSize(4).renderImage();
+        assertSameImage(single, packets, "4x4 packet render differs");
+
+        // EP02: 4x4 packets on several threads
+        packets = new ImageWriter("Test", 30, 30);
+        shadedCamera(packets).setPacketSize(4).setMultiThreading(true).setThreadsCount(3).renderImage();
+        assertSameImage(single, packets, "Multi-threaded packet render differs");
+
+        // =============== Boundary Values Tests ==================
+        // BV01: Packets larger than the last partial row and column of blocks
+        packets = new ImageWriter("Test", 30, 30);
+        shadedCamera(packets).setPacketSize(8).renderImage();
+        assertSameImage(single, packets, "8x8 packet render differs");
+
+        // BV02: A packet size that is not positive
+        assertThrows(IllegalArgumentException.class, () -> shadedCamera(single).setPacketSize(0),
+                "Packet size must be positive");
+    }
 }
@@ -3,6 +3,8 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Testing ImageWriter class
  */
@@ -49,4 +51,28 @@ class ImageWriterTests {
         imageWriter.writeToImage();
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link renderer.ImageWriter#accumulatePixel(int, int, Color)}.
+     */
+    @Test
+    public void testAccumulatePixel() {
+        ImageWriter imageWriter = new ImageWriter("accumulate", 2, 1);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: The pixel gets the average of the samples, unclamped
+        imageWriter.accumulatePixel(1, 0, new Color(100, 300, 0));
+        imageWriter.accumulatePixel(1, 0, new Color(200, 500, 10));
+        assertEquals(new Color(150, 400, 5).toString(), imageWriter.getPixel(1, 0).toString(), "Wrong average");
+        assertEquals(2, imageWriter.getSampleCount(1, 0), "Wrong number of samples");
+
+        // TC02: Writing a pixel replaces its samples
+        imageWriter.writePixel(1, 0, Color.RED);
+        assertEquals(Color.RED.toString(), imageWriter.getPixel(1, 0).toString(), "Written color must replace the samples");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: A pixel without samples is black
+        assertEquals(0, imageWriter.getSampleCount(0, 0), "Pixel must have no samples");
+        assertEquals(Color.BLACK.toString(), imageWriter.getPixel(0, 0).toString(), "Pixel without samples must be black");
+    }
+}
@@ -0,0 +1,39 @@
+package renderer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.random.RandomGenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Testing Sampler interface
+ */
+class SamplerTests {
+
+    /**
+     * Test method for {@link renderer.Sampler#deterministic(long)}.
+     */
+    @Test
+    void testDeterministic() {
+        Sampler sampler = Sampler.deterministic(7);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Same pixel gets the same sequence
+        RandomGenerator first = sampler.forPixel(3, 5);
+        RandomGenerator second = Sampler.deterministic(7).forPixel(3, 5);
+        for (int k = 0; k < 10; ++k)
+            assertEquals(first.nextDouble(), second.nextDouble(), "Same pixel must get the same sequence");
+
+        // TC02: Neighbouring pixels get different sequences
+        assertNotEquals(sampler.forPixel(3, 5).nextDouble(), sampler.forPixel(4, 5).nextDouble(),
+                "Neighbouring pixels must get different sequences");
+        assertNotEquals(sampler.forPixel(3, 5).nextDouble(), sampler.forPixel(5, 3).nextDouble(),
+                "Transposed pixels must get different sequences");
+
+        // TC03: Different seeds give different sequences
+        assertNotEquals(sampler.forPixel(3, 5).nextDouble(), Sampler.deterministic(8).forPixel(3, 5).nextDouble(),
+                "Different seeds must give different sequences");
+    }
+}
@@ -0,0 +1,121 @@
+package scene;
+
+import geometries.TriangleMesh;
+import org.junit.jupiter.api.Test;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Testing MeshLoader class
+ */
+class MeshLoaderTests {
+
+    /**
+     * Writes a temporary model file.
+     *
+     * @param suffix  the extension of the file
+     * @param content the content of the file
+     * @return the path of the file
+     * @throws IOException in case of an I/O error
+     */
+    private static Path write(String suffix, byte[] content) throws IOException {
+        Path path = Files.createTempFile("mesh", suffix);
+        path.toFile().deleteOnExit();
+        return Files.write(path, content);
+    }
+
+    /**
+     * Test method for {@link scene.MeshLoader#loadObj(Path)}.
+     */
+    @Test
+    void testLoadObj() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: A quad with texture and normal indices and a triangle with negative indices
+        String obj = """
+                # unit square at z = -1, and a triangle behind it
+                v 0 0 -1
+                v 1 0 -1
+                v 1 1 -1
+                v 0 1 -1
+                vn 0 0 1
+                f 1/1/1 2/2/1 3/3/1 4/4/1
+                v 0 0 -2
+                v 2 0 -2
+                v 0 2 -2
+                f -3 -2 -1
+                """;
+        TriangleMesh mesh = MeshLoader.load(write(".obj", obj.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(7, mesh.getVertexCount(), "Wrong number of vertices");
+        assertEquals(3, mesh.getFaceCount(), "Quad must be split into two triangles");
+        assertEquals(new Point(0.25, 0.75, -1),
+                mesh.findClosestGeoIntersection(new Ray(new Point(0.25, 0.75, 0), new Vector(0, 0, -1))).point,
+                "Wrong intersection with the quad");
+        assertEquals(new Point(1.5, 0.25, -2),
+                mesh.findClosestGeoIntersection(new Ray(new Point(1.5, 0.25, 0), new Vector(0, 0, -1))).point,
+                "Wrong intersection with the triangle");
+
+        // TC02: Index out of range
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshLoader.load(write(".obj", "v 0 0 0\nv 1 0 0\nf 1 2 3\n".getBytes(StandardCharsets.UTF_8))),
+                "Index out of range must be rejected");
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Unsupported format
+        assertThrows(IllegalArgumentException.class, () -> MeshLoader.load(write(".stl", new byte[0])),
+                "Unsupported format must be rejected");
+    }
+
+    /**
+     * Test method for {@link scene.MeshLoader#loadPly(Path)}.
+     */
+    @Test
+    void testLoadPly() throws IOException {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: Little endian file with an extra vertex property, a quad face and a skipped element
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            String header = "ply\nformat " + (order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian" : "binary_big_endian")
+                    + " 1.0\ncomment test\nelement vertex 4\nproperty float x\nproperty float y\nproperty float z\n"
+                    + "property uchar red\nelement face 1\nproperty list uchar int vertex_indices\n"
+                    + "element extra 2\nproperty short value\nend_header\n";
+            byte[] head = header.getBytes(StandardCharsets.US_ASCII);
+            ByteBuffer buffer = ByteBuffer.allocate(head.length + 4 * 13 + 1 + 16 + 4).order(order);
+            buffer.put(head);
+            float[][] vertices = {{0, 0, -1}, {1, 0, -1}, {1, 1, -1}, {0, 1, -1}};
+            for (float[] vertex : vertices) {
+                buffer.putFloat(vertex[0]).putFloat(vertex[1]).putFloat(vertex[2]);
+                buffer.put((byte) 200);
+            }
+            buffer.put((byte) 4).putInt(0).putInt(1).putInt(2).putInt(3);
+            buffer.putShort((short) 1).putShort((short) 2);
+
+            TriangleMesh mesh = MeshLoader.load(write(".ply", buffer.array()));
+            assertEquals(4, mesh.getVertexCount(), "Wrong number of vertices for " + order);
+            assertEquals(2, mesh.getFaceCount(), "Quad must be split into two triangles for " + order);
+            assertEquals(new Point(0.75, 0.25, -1),
+                    mesh.findClosestGeoIntersection(new Ray(new Point(0.75, 0.25, 0), new Vector(0, 0, -1))).point,
+                    "Wrong intersection for " + order);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC11: ASCII PLY is not supported
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshLoader.load(write(".ply", "ply\nformat ascii 1.0\nend_header\n".getBytes(StandardCharsets.US_ASCII))),
+                "ASCII PLY must be rejected");
+
+        // TC12: Truncated file
+        assertThrows(IllegalArgumentException.class,
+                () -> MeshLoader.load(write(".ply", ("ply\nformat binary_little_endian 1.0\nelement vertex 2\n"
+                        + "property float x\nproperty float y\nproperty float z\nend_header\n").getBytes(StandardCharsets.US_ASCII))),
+                "Truncated file must be rejected");
+    }
+}